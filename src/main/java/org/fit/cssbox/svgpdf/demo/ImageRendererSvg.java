@@ -31,7 +31,9 @@ import org.fit.cssbox.layout.BrowserConfig;
 import org.fit.cssbox.layout.Dimension;
 import org.fit.cssbox.layout.Rectangle;
 import org.fit.cssbox.layout.Viewport;
+import org.fit.cssbox.svgpdf.render.SVGPaging;
 import org.fit.cssbox.svgpdf.render.SVGRenderer;
+import org.fit.cssbox.svgpdf.render.SVGTiledExport;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
@@ -59,6 +61,10 @@ public class ImageRendererSvg
     private boolean cropWindow = false;
     private boolean loadImages = true;
     private boolean loadBackgroundImages = true;
+    private boolean compress = false;
+    private int compressionLevel = 9;
+    private int compressionThreads = 1;
+    private Rectangle clipRegion = null;
 
     public ImageRendererSvg()
     {
@@ -82,6 +88,36 @@ public class ImageRendererSvg
         loadBackgroundImages = background;
     }
 
+    /**
+     * Switches the compressed SVGZ output on or off.
+     *
+     * @param compress
+     *            {@code true} for the gzip-compressed output
+     * @param level
+     *            the compression level (0..9)
+     * @param threads
+     *            the number of compression threads, more than one enables
+     *            parallel block compression
+     */
+    public void setCompression(boolean compress, int level, int threads)
+    {
+        this.compress = compress;
+        this.compressionLevel = level;
+        this.compressionThreads = threads;
+    }
+
+    /**
+     * Restricts the SVG output to a region of the page.
+     *
+     * @param region
+     *            the rendered region in CSS pixels or {@code null} for the
+     *            whole page
+     */
+    public void setClipRegion(Rectangle region)
+    {
+        clipRegion = region;
+    }
+
     /**
      * Renders the URL and prints the result to the specified output stream in
      * the specified format.
@@ -103,7 +139,131 @@ public class ImageRendererSvg
 
         //Open the network connection 
         DocumentSource docSource = new DefaultDocumentSource(urlstring);
+        Viewport vp = createLayout(docSource);
+
+        if (compress)
+        {
+            writeSVGZ(vp, out);
+        }
+        else
+        {
+            Writer w = new OutputStreamWriter(out, "utf-8");
+            writeSVG(vp, w);
+            w.close();
+        }
+
+        docSource.close();
+
+        return true;
+    }
+
+    /**
+     * Renders the URL to a sequence of SVG files, one file per page. The files are
+     * named by the base file name followed by the page number, e.g. out-1.svg,
+     * out-2.svg, etc. When the compression is switched on, SVGZ files are produced
+     * (out-1.svgz, ...). The clip region, if set, is applied to each page relative
+     * to the top of the page.
+     *
+     * @param urlstring
+     *            the source URL
+     * @param pageHeight
+     *            the page height in CSS pixels
+     * @param baseFile
+     *            the base output file
+     * @return the number of pages written
+     * @throws SAXException
+     */
+    public int renderURLPages(String urlstring, float pageHeight, File baseFile) throws IOException, SAXException
+    {
+        if (!urlstring.startsWith("http:") && !urlstring.startsWith("https:") && !urlstring.startsWith("ftp:")
+                && !urlstring.startsWith("file:"))
+        {
+            urlstring = "http://" + urlstring;
+        }
+
+        DocumentSource docSource = new DefaultDocumentSource(urlstring);
+        Viewport vp = createLayout(docSource);
+
+        SVGPaging paging = new SVGPaging(vp, pageHeight);
+        String name = baseFile.getName();
+        int dot = name.lastIndexOf('.');
+        String base = (dot == -1) ? name : name.substring(0, dot);
+        try
+        {
+            for (int i = 0; i < paging.getPageCount(); i++)
+            {
+                File f = new File(baseFile.getParentFile(), base + "-" + (i + 1) + (compress ? ".svgz" : ".svg"));
+                try (OutputStream os = new FileOutputStream(f))
+                {
+                    if (compress)
+                    {
+                        writeSVGZPage(vp, paging, i, os);
+                    }
+                    else
+                    {
+                        try (Writer w = new OutputStreamWriter(os, "utf-8"))
+                        {
+                            writeSVGPage(vp, paging, i, w);
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            docSource.close();
+        }
+
+        return paging.getPageCount();
+    }
+
+    /**
+     * Renders the URL to a grid of SVG tiles stored in the given directory
+     * together with a manifest.json file describing the tiles.
+     *
+     * @param urlstring
+     *            the source URL
+     * @param tileWidth
+     *            the tile width in CSS pixels
+     * @param tileHeight
+     *            the tile height in CSS pixels
+     * @param dir
+     *            the output directory
+     * @param threads
+     *            the number of threads writing the tiles
+     * @return the manifest file
+     * @throws SAXException
+     */
+    public File renderURLTiles(String urlstring, float tileWidth, float tileHeight, File dir, int threads)
+            throws IOException, SAXException
+    {
+        if (!urlstring.startsWith("http:") && !urlstring.startsWith("https:") && !urlstring.startsWith("ftp:")
+                && !urlstring.startsWith("file:"))
+        {
+            urlstring = "http://" + urlstring;
+        }
+
+        DocumentSource docSource = new DefaultDocumentSource(urlstring);
+        Viewport vp = createLayout(docSource);
+
+        SVGTiledExport export = new SVGTiledExport(vp, tileWidth, tileHeight);
+        File manifest = export.export(dir, threads);
+
+        docSource.close();
 
+        return manifest;
+    }
+
+    /**
+     * Parses the document and creates its layout.
+     *
+     * @param docSource
+     *            the document source
+     * @return the viewport with the layout created
+     * @throws SAXException
+     */
+    protected Viewport createLayout(DocumentSource docSource) throws IOException, SAXException
+    {
         //Parse the input document
         DOMSource parser = new DefaultDOMSource(docSource);
         Document doc = parser.parse();
@@ -133,13 +293,7 @@ public class ImageRendererSvg
         //create the layout but do not render
         engine.createLayout(windowSize, new Rectangle(windowSize), false);
 
-        Writer w = new OutputStreamWriter(out, "utf-8");
-        writeSVG(engine.getViewport(), w);
-        w.close();
-
-        docSource.close();
-
-        return true;
+        return engine.getViewport();
     }
 
     /**
@@ -167,10 +321,81 @@ public class ImageRendererSvg
         float h = vp.getClippedContentBounds().height;
 
         SVGRenderer render = new SVGRenderer(w, h, out);
+        render.setClipRegion(clipRegion);
         vp.draw(render);
         render.close();
     }
 
+    /**
+     * Renders the viewport using an SVGRenderer to the given output stream
+     * as compressed SVGZ.
+     *
+     * @param vp
+     * @param out
+     * @throws IOException
+     */
+    protected void writeSVGZ(Viewport vp, OutputStream out) throws IOException
+    {
+        float w = vp.getClippedContentBounds().width;
+        float h = vp.getClippedContentBounds().height;
+
+        SVGRenderer render = new SVGRenderer(w, h, out, compressionLevel, compressionThreads);
+        render.setClipRegion(clipRegion);
+        vp.draw(render);
+        render.close();
+    }
+
+    /**
+     * Renders a single page of the viewport using an SVGRenderer to the given output writer.
+     *
+     * @param vp
+     * @param paging
+     *            the computed pagination of the viewport
+     * @param page
+     *            the page index
+     * @param out
+     * @throws IOException
+     */
+    protected void writeSVGPage(Viewport vp, SVGPaging paging, int page, Writer out) throws IOException
+    {
+        SVGRenderer render = new SVGRenderer(paging, page, out);
+        setPageClipRegion(render, paging, page);
+        vp.draw(render);
+        render.close();
+    }
+
+    /**
+     * Renders a single page of the viewport using an SVGRenderer to the given output stream
+     * as compressed SVGZ.
+     *
+     * @param vp
+     * @param paging
+     *            the computed pagination of the viewport
+     * @param page
+     *            the page index
+     * @param out
+     * @throws IOException
+     */
+    protected void writeSVGZPage(Viewport vp, SVGPaging paging, int page, OutputStream out) throws IOException
+    {
+        SVGRenderer render = new SVGRenderer(paging, page, out, compressionLevel, compressionThreads);
+        setPageClipRegion(render, paging, page);
+        vp.draw(render);
+        render.close();
+    }
+
+    /**
+     * Applies the clip region to a page renderer. The region is relative to the top of the page.
+     */
+    private void setPageClipRegion(SVGRenderer render, SVGPaging paging, int page)
+    {
+        if (clipRegion != null)
+        {
+            render.setClipRegion(new Rectangle(clipRegion.x, clipRegion.y + page * paging.getPageHeight(),
+                    clipRegion.width, clipRegion.height));
+        }
+    }
+
     //=================================================================================
     
     public static void main(String[] args)
@@ -179,23 +404,33 @@ public class ImageRendererSvg
         //System.out.println("VectorRender");
         //        long start = System.nanoTime();
 
-        if (args.length != 2)
+        if (args.length != 2 && args.length != 3)
         {
-            System.err.println("Usage: ImageRenderer <url> <output_file>");
+            System.err.println("Usage: ImageRenderer <url> <output_file> [page_height]");
             System.err.println();
             System.err.println("Renders a HTML document at the specified URL and stores the document image");
-            System.err.println("to the specified SVG output file.");
+            System.err.println("to the specified SVG output file. The output is compressed");
+            System.err.println("when the file name ends with .svgz. When the page height is specified,");
+            System.err.println("a separate file is produced for each page.");
             System.exit(0);
         }
 
         FileOutputStream os;
         try
         {
-            os = new FileOutputStream(args[1]);
-
             ImageRendererSvg r = new ImageRendererSvg();
-            r.renderURL(args[0], os);
-            os.close();
+            if (args.length == 3)
+            {
+                r.renderURLPages(args[0], Float.parseFloat(args[2]), new File(args[1]));
+            }
+            else
+            {
+                os = new FileOutputStream(args[1]);
+                if (args[1].toLowerCase().endsWith(".svgz"))
+                    r.setCompression(true, 9, Runtime.getRuntime().availableProcessors());
+                r.renderURL(args[0], os);
+                os.close();
+            }
         } catch (FileNotFoundException ex)
         {
             Logger.getLogger(ImageRendererSvg.class.getName()).log(Level.SEVERE, null, ex);
@@ -6,10 +6,10 @@ import org.fit.cssbox.layout.CSSDecoder;
 import org.fit.cssbox.layout.ElementBox;
 import org.fit.cssbox.layout.LengthSet;
 import org.fit.cssbox.layout.Rectangle;
+import org.fit.cssbox.svgpdf.render.StyleFlags;
 import org.w3c.dom.Element;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 /**
  * A class for border representation
@@ -25,15 +25,18 @@ public abstract class Border {
     // outer border rectangle
     public Rectangle borderBounds;
 
-    //// points for start corner of border
-    public DPoint topRightH = new DPoint();
-    public DPoint topRightV = new DPoint();
-    public DPoint topLeftH = new DPoint();
-    public DPoint topLeftV = new DPoint();
-    public DPoint bottomRightH = new DPoint();
-    public DPoint bottomRightV = new DPoint();
-    public DPoint bottomLeftH = new DPoint();
-    public DPoint bottomLeftV = new DPoint();
+    // indices of the points where the corners start, see the edges array
+    public static final int TOP_RIGHT_H = 0;
+    public static final int TOP_RIGHT_V = 1;
+    public static final int TOP_LEFT_H = 2;
+    public static final int TOP_LEFT_V = 3;
+    public static final int BOTTOM_RIGHT_H = 4;
+    public static final int BOTTOM_RIGHT_V = 5;
+    public static final int BOTTOM_LEFT_H = 6;
+    public static final int BOTTOM_LEFT_V = 7;
+
+    //// points for start corner of border; the coordinates of point i are stored at 2 * i (x) and 2 * i + 1 (y)
+    public float[] edges;
 
     // pro kazdy roh trida, ktera uklada jendotlive body potrebne k vykresleni ramecku do SVG
     public CornerRadius topLeft;
@@ -49,18 +52,30 @@ public abstract class Border {
 
     public static final float MIN = 0.0001f;
 
+    // the border related style flags of the element, see StyleFlags
+    protected int styleFlags;
+
+    // the resolved colors of the sides in the order top, right, bottom, left
+    private Color[] sideColors;
+
+    // a buffer for the ellipse and line intersections
+    private final double[] intersections = new double[4];
 
-    public Border(LengthSet lengths, Rectangle bb, ElementBox eb) {
+
+    /**
+     * Creates the border geometry of an element.
+     *
+     * @param lengths    - the border widths
+     * @param bb         - the border bounds
+     * @param eb         - the element
+     * @param styleFlags - the style flags of the element (at least the border related ones, see {@link StyleFlags#computeBorder(ElementBox)})
+     */
+    public Border(LengthSet lengths, Rectangle bb, ElementBox eb, int styleFlags) {
         border = lengths;
         borderBounds = bb;
-        topRightH = new DPoint();
-        topRightV = new DPoint();
-        topLeftH = new DPoint();
-        topLeftV = new DPoint();
-        bottomRightH = new DPoint();
-        bottomRightV = new DPoint();
-        bottomLeftH = new DPoint();
-        bottomLeftV = new DPoint();
+        edges = new float[16];
+        this.styleFlags = styleFlags;
+        sideColors = new Color[4];
 
         final CSSDecoder dec = new CSSDecoder(eb.getVisualContext());
         setRadiusByStyle(1, eb.getStyle(), dec, "border-top-right-radius");
@@ -83,6 +98,40 @@ public abstract class Border {
     }
 
 
+    /**
+     * Creates a copy of the border geometry. The corners are copied so that they may be
+     * transformed (e.g. to the page coordinates) without affecting the original border;
+     * the remaining values are shared.
+     *
+     * @param src - the source border
+     */
+    protected Border(Border src) {
+        border = src.border;
+        borderBounds = src.borderBounds;
+        edges = src.edges;
+        styleFlags = src.styleFlags;
+        sideColors = src.sideColors;
+        topLeft = (CornerRadius) src.topLeft.clone();
+        topRight = (CornerRadius) src.topRight.clone();
+        bottomLeft = (CornerRadius) src.bottomLeft.clone();
+        bottomRight = (CornerRadius) src.bottomRight.clone();
+        colorLeft = src.colorLeft;
+        colorRight = src.colorRight;
+        colorBottom = src.colorBottom;
+        colorTop = src.colorTop;
+    }
+
+    /**
+     * Checks whether the border has been computed for the given bounds.
+     *
+     * @param bb - the border bounds
+     * @return {@code true} when the bounds are equal to the bounds of this border
+     */
+    public boolean hasBounds(Rectangle bb) {
+        return borderBounds.x == bb.x && borderBounds.y == bb.y
+                && borderBounds.width == bb.width && borderBounds.height == bb.height;
+    }
+
     /**
      * Gets the corner radius for the given corner.
      *
@@ -171,29 +220,34 @@ public abstract class Border {
      */
     public void calculateBorderPoints() {
 
-        topLeftH.x = borderBounds.x + Math.max(topLeft.x, border.left);//topLeft.x;
-        topLeftH.y = borderBounds.y;
+        setEdge(TOP_LEFT_H, borderBounds.x + Math.max(topLeft.x, border.left), borderBounds.y);//topLeft.x;
+
+        setEdge(TOP_RIGHT_H, borderBounds.x + borderBounds.width - Math.max(topRight.x, border.right), borderBounds.y);//topRight.x;
 
-        topRightH.x = borderBounds.x + borderBounds.width - Math.max(topRight.x, border.right);//topRight.x;
-        topRightH.y = borderBounds.y;
+        setEdge(TOP_RIGHT_V, borderBounds.x + borderBounds.width, borderBounds.y + Math.max(topRight.y, border.top));
 
-        topRightV.x = borderBounds.x + borderBounds.width;
-        topRightV.y = borderBounds.y + Math.max(topRight.y, border.top);
+        setEdge(BOTTOM_RIGHT_V, borderBounds.x + borderBounds.width, borderBounds.y + borderBounds.height - Math.max(bottomRight.y, border.bottom));
 
-        bottomRightV.x = borderBounds.x + borderBounds.width;
-        bottomRightV.y = borderBounds.y + borderBounds.height - Math.max(bottomRight.y, border.bottom);
+        setEdge(BOTTOM_RIGHT_H, borderBounds.x + borderBounds.width - Math.max(bottomRight.x, border.right), borderBounds.y + borderBounds.height);
 
-        bottomRightH.x = borderBounds.x + borderBounds.width - Math.max(bottomRight.x, border.right);
-        bottomRightH.y = borderBounds.y + borderBounds.height;
+        setEdge(BOTTOM_LEFT_H, borderBounds.x + Math.max(bottomLeft.x, border.left), borderBounds.y + borderBounds.height);
 
-        bottomLeftH.x = borderBounds.x + Math.max(bottomLeft.x, border.left);
-        bottomLeftH.y = borderBounds.y + borderBounds.height;
+        setEdge(BOTTOM_LEFT_V, borderBounds.x, borderBounds.y + borderBounds.height - Math.max(bottomLeft.y, border.bottom));
 
-        bottomLeftV.x = borderBounds.x;
-        bottomLeftV.y = borderBounds.y + borderBounds.height - Math.max(bottomLeft.y, border.bottom);
+        setEdge(TOP_LEFT_V, borderBounds.x, borderBounds.y + Math.max(topLeft.y, border.top));
+    }
+
+    public float getEdgeX(int point) {
+        return edges[2 * point];
+    }
+
+    public float getEdgeY(int point) {
+        return edges[2 * point + 1];
+    }
 
-        topLeftV.x = borderBounds.x;
-        topLeftV.y = borderBounds.y + Math.max(topLeft.y, border.top);
+    private void setEdge(int point, float x, float y) {
+        edges[2 * point] = x;
+        edges[2 * point + 1] = y;
     }
 
     /**
@@ -214,31 +268,30 @@ public abstract class Border {
         //
         // points A, B, C, D, E a O are calculate according to element, border, and size of rounded corner
         //
-        topRight.o.x = borderBounds.x + borderBounds.width;
-        topRight.o.y = borderBounds.y;
-        topRight.e.x = topRight.o.x - radx;
-        topRight.e.y = topRight.o.y + rady;
+        topRight.setX(CornerRadius.O, borderBounds.x + borderBounds.width);
+        topRight.setY(CornerRadius.O, borderBounds.y);
+        topRight.setX(CornerRadius.E, topRight.getX(CornerRadius.O) - radx);
+        topRight.setY(CornerRadius.E, topRight.getY(CornerRadius.O) + rady);
 
-        topRight.a.x = topRight.o.x - radx;
-        topRight.a.y = topRight.o.y;
+        topRight.setX(CornerRadius.A, topRight.getX(CornerRadius.O) - radx);
+        topRight.setY(CornerRadius.A, topRight.getY(CornerRadius.O));
 
-        topRight.b.x = topRight.o.x - Math.max(widthHor, radx);
-        topRight.b.y = topRight.o.y + widthVer;
+        topRight.setX(CornerRadius.B, topRight.getX(CornerRadius.O) - Math.max(widthHor, radx));
+        topRight.setY(CornerRadius.B, topRight.getY(CornerRadius.O) + widthVer);
 
-        topRight.c.x = topRight.o.x;
-        topRight.c.y = topRight.o.y + rady;
+        topRight.setX(CornerRadius.C, topRight.getX(CornerRadius.O));
+        topRight.setY(CornerRadius.C, topRight.getY(CornerRadius.O) + rady);
 
-        topRight.d.x = topRight.o.x - widthHor;
-        topRight.d.y = topRight.o.y + Math.max(widthVer, rady);
+        topRight.setX(CornerRadius.D, topRight.getX(CornerRadius.O) - widthHor);
+        topRight.setY(CornerRadius.D, topRight.getY(CornerRadius.O) + Math.max(widthVer, rady));
 
         topRight.k = Math.tan((widthVer / (2.0 * (widthVer + widthHor))) * Math.PI);
-        topRight.z = (topRight.o.y + topRight.k * topRight.o.x);
+        topRight.z = (topRight.getY(CornerRadius.O) + topRight.k * topRight.getX(CornerRadius.O));
 
-        topRight.bounds = new Rectangle(topRight.o.x - radx, topRight.o.y, radx, rady);
+        topRight.bounds = new Rectangle(topRight.getX(CornerRadius.O) - radx, topRight.getY(CornerRadius.O), radx, rady);
         if (widthVer >= rady || widthHor >= radx) {
-            topRight.q = new DPoint();
-            topRight.q.x = topRight.d.x;
-            topRight.q.y = topRight.b.y;
+            topRight.hasQ = true;
+            topRight.setPoint(CornerRadius.Q, topRight.getX(CornerRadius.D), topRight.getY(CornerRadius.B));
         }
 
         // points G a H, see the technical report for the diploma thesis
@@ -253,32 +306,31 @@ public abstract class Border {
         rady = topLeft.y;
         widthHor = border.left;
         widthVer = border.top;
-        topLeft.o.x = borderBounds.x;
-        topLeft.o.y = borderBounds.y;
+        topLeft.setX(CornerRadius.O, borderBounds.x);
+        topLeft.setY(CornerRadius.O, borderBounds.y);
 
-        topLeft.e.x = topLeft.o.x + radx;
-        topLeft.e.y = topLeft.o.y + rady;
+        topLeft.setX(CornerRadius.E, topLeft.getX(CornerRadius.O) + radx);
+        topLeft.setY(CornerRadius.E, topLeft.getY(CornerRadius.O) + rady);
 
-        topLeft.a.x = topLeft.o.x;
-        topLeft.a.y = topLeft.o.y + rady;
+        topLeft.setX(CornerRadius.A, topLeft.getX(CornerRadius.O));
+        topLeft.setY(CornerRadius.A, topLeft.getY(CornerRadius.O) + rady);
 
-        topLeft.b.x = topLeft.o.x + widthHor;
-        topLeft.b.y = topLeft.o.y + Math.max(widthVer, rady);
+        topLeft.setX(CornerRadius.B, topLeft.getX(CornerRadius.O) + widthHor);
+        topLeft.setY(CornerRadius.B, topLeft.getY(CornerRadius.O) + Math.max(widthVer, rady));
 
-        topLeft.c.x = topLeft.o.x + radx;
-        topLeft.c.y = topLeft.o.y;
+        topLeft.setX(CornerRadius.C, topLeft.getX(CornerRadius.O) + radx);
+        topLeft.setY(CornerRadius.C, topLeft.getY(CornerRadius.O));
 
-        topLeft.d.x = topLeft.o.x + Math.max(widthHor, radx);
-        topLeft.d.y = topLeft.o.y + widthVer;
+        topLeft.setX(CornerRadius.D, topLeft.getX(CornerRadius.O) + Math.max(widthHor, radx));
+        topLeft.setY(CornerRadius.D, topLeft.getY(CornerRadius.O) + widthVer);
 
         topLeft.k = -Math.tan(((widthVer) / (2.0 * (widthHor + widthVer))) * Math.PI);
-        topLeft.z = (topLeft.o.y + topLeft.k * topLeft.o.x);
+        topLeft.z = (topLeft.getY(CornerRadius.O) + topLeft.k * topLeft.getX(CornerRadius.O));
 
-        topLeft.bounds = new Rectangle(topLeft.o.x, topLeft.o.y, radx, rady);
+        topLeft.bounds = new Rectangle(topLeft.getX(CornerRadius.O), topLeft.getY(CornerRadius.O), radx, rady);
         if (widthVer >= rady || widthHor >= radx) {
-            topLeft.q = new DPoint();
-            topLeft.q.x = topLeft.b.x;
-            topLeft.q.y = topLeft.d.y;
+            topLeft.hasQ = true;
+            topLeft.setPoint(CornerRadius.Q, topLeft.getX(CornerRadius.B), topLeft.getY(CornerRadius.D));
         }
         calculateMiddlePoints(topLeft, radx, rady, widthHor, widthVer, 2);
 
@@ -291,33 +343,32 @@ public abstract class Border {
         widthHor = border.right;
         widthVer = border.bottom;
 
-        bottomRight.o.x = borderBounds.x + borderBounds.width;
-        bottomRight.o.y = borderBounds.y + borderBounds.height;
-        bottomRight.e.x = bottomRight.o.x - radx;
-        bottomRight.e.y = bottomRight.o.y - rady;
+        bottomRight.setX(CornerRadius.O, borderBounds.x + borderBounds.width);
+        bottomRight.setY(CornerRadius.O, borderBounds.y + borderBounds.height);
+        bottomRight.setX(CornerRadius.E, bottomRight.getX(CornerRadius.O) - radx);
+        bottomRight.setY(CornerRadius.E, bottomRight.getY(CornerRadius.O) - rady);
 
-        bottomRight.a.x = bottomRight.o.x;
-        bottomRight.a.y = bottomRight.o.y - rady;
+        bottomRight.setX(CornerRadius.A, bottomRight.getX(CornerRadius.O));
+        bottomRight.setY(CornerRadius.A, bottomRight.getY(CornerRadius.O) - rady);
 
-        bottomRight.b.x = bottomRight.o.x - widthHor;
-        bottomRight.b.y = bottomRight.o.y - Math.max(widthVer, rady);
+        bottomRight.setX(CornerRadius.B, bottomRight.getX(CornerRadius.O) - widthHor);
+        bottomRight.setY(CornerRadius.B, bottomRight.getY(CornerRadius.O) - Math.max(widthVer, rady));
 
-        bottomRight.c.x = bottomRight.o.x - radx;
-        bottomRight.c.y = bottomRight.o.y;
+        bottomRight.setX(CornerRadius.C, bottomRight.getX(CornerRadius.O) - radx);
+        bottomRight.setY(CornerRadius.C, bottomRight.getY(CornerRadius.O));
 
-        bottomRight.d.x = bottomRight.o.x - Math.max(widthHor, radx);
-        bottomRight.d.y = bottomRight.o.y - widthVer;
+        bottomRight.setX(CornerRadius.D, bottomRight.getX(CornerRadius.O) - Math.max(widthHor, radx));
+        bottomRight.setY(CornerRadius.D, bottomRight.getY(CornerRadius.O) - widthVer);
 
         double mid = (widthVer) / (2.0 * (widthHor + widthVer));
 
         bottomRight.k = -Math.tan(mid * Math.PI);
-        bottomRight.z = (bottomRight.o.y + bottomRight.k * bottomRight.o.x);
+        bottomRight.z = (bottomRight.getY(CornerRadius.O) + bottomRight.k * bottomRight.getX(CornerRadius.O));
 
-        bottomRight.bounds = new Rectangle(bottomRight.o.x - radx, bottomRight.o.y - rady, radx, rady);
+        bottomRight.bounds = new Rectangle(bottomRight.getX(CornerRadius.O) - radx, bottomRight.getY(CornerRadius.O) - rady, radx, rady);
         if (widthVer >= rady || widthHor >= radx) {
-            bottomRight.q = new DPoint();
-            bottomRight.q.x = bottomRight.b.x;
-            bottomRight.q.y = bottomRight.d.y;
+            bottomRight.hasQ = true;
+            bottomRight.setPoint(CornerRadius.Q, bottomRight.getX(CornerRadius.B), bottomRight.getY(CornerRadius.D));
         }
         calculateMiddlePoints(bottomRight, radx, rady, widthHor, widthVer, 3);
 
@@ -330,32 +381,31 @@ public abstract class Border {
         widthHor = border.left;
         widthVer = border.bottom;
 
-        bottomLeft.o.x = borderBounds.x;
-        bottomLeft.o.y = borderBounds.y + borderBounds.height;
+        bottomLeft.setX(CornerRadius.O, borderBounds.x);
+        bottomLeft.setY(CornerRadius.O, borderBounds.y + borderBounds.height);
 
-        bottomLeft.e.x = bottomLeft.o.x + radx;
-        bottomLeft.e.y = bottomLeft.o.y - rady;
+        bottomLeft.setX(CornerRadius.E, bottomLeft.getX(CornerRadius.O) + radx);
+        bottomLeft.setY(CornerRadius.E, bottomLeft.getY(CornerRadius.O) - rady);
 
-        bottomLeft.a.x = bottomLeft.o.x + radx;
-        bottomLeft.a.y = bottomLeft.o.y;
+        bottomLeft.setX(CornerRadius.A, bottomLeft.getX(CornerRadius.O) + radx);
+        bottomLeft.setY(CornerRadius.A, bottomLeft.getY(CornerRadius.O));
 
-        bottomLeft.b.x = bottomLeft.o.x + Math.max(widthHor, radx);
-        bottomLeft.b.y = bottomLeft.o.y - widthVer;
+        bottomLeft.setX(CornerRadius.B, bottomLeft.getX(CornerRadius.O) + Math.max(widthHor, radx));
+        bottomLeft.setY(CornerRadius.B, bottomLeft.getY(CornerRadius.O) - widthVer);
 
-        bottomLeft.c.x = bottomLeft.o.x;
-        bottomLeft.c.y = bottomLeft.o.y - rady;
+        bottomLeft.setX(CornerRadius.C, bottomLeft.getX(CornerRadius.O));
+        bottomLeft.setY(CornerRadius.C, bottomLeft.getY(CornerRadius.O) - rady);
 
-        bottomLeft.d.x = bottomLeft.o.x + widthHor;
-        bottomLeft.d.y = bottomLeft.o.y - Math.max(widthVer, rady);
+        bottomLeft.setX(CornerRadius.D, bottomLeft.getX(CornerRadius.O) + widthHor);
+        bottomLeft.setY(CornerRadius.D, bottomLeft.getY(CornerRadius.O) - Math.max(widthVer, rady));
 
         bottomLeft.k = Math.tan(((widthVer) / (2.0 * (widthHor + widthVer))) * Math.PI);
-        bottomLeft.z = (bottomLeft.o.y + bottomLeft.k * bottomLeft.o.x);
+        bottomLeft.z = (bottomLeft.getY(CornerRadius.O) + bottomLeft.k * bottomLeft.getX(CornerRadius.O));
 
-        bottomLeft.bounds = new Rectangle(bottomLeft.o.x, bottomLeft.o.y - rady, radx, rady);
+        bottomLeft.bounds = new Rectangle(bottomLeft.getX(CornerRadius.O), bottomLeft.getY(CornerRadius.O) - rady, radx, rady);
         if (widthVer >= rady || widthHor >= radx) {
-            bottomLeft.q = new DPoint();
-            bottomLeft.q.x = bottomLeft.d.x;
-            bottomLeft.q.y = bottomLeft.b.y;
+            bottomLeft.hasQ = true;
+            bottomLeft.setPoint(CornerRadius.Q, bottomLeft.getX(CornerRadius.D), bottomLeft.getY(CornerRadius.B));
         }
         calculateMiddlePoints(bottomLeft, radx, rady, widthHor, widthVer, 4);
     }
@@ -374,60 +424,60 @@ public abstract class Border {
         // border width is 0px
         // border not rounded and points G and H are compute only by border width
         if (radx == 0 && rady == 0) {
-            cr.h.x = cr.o.x;
-            cr.h.y = cr.o.y;
+            cr.setX(CornerRadius.H, cr.getX(CornerRadius.O));
+            cr.setY(CornerRadius.H, cr.getY(CornerRadius.O));
             if (s == 1) { // top-right
-                cr.g.x = cr.o.x - widthHor;
-                cr.g.y = cr.o.y + widthVer;
+                cr.setX(CornerRadius.G, cr.getX(CornerRadius.O) - widthHor);
+                cr.setY(CornerRadius.G, cr.getY(CornerRadius.O) + widthVer);
             } else if (s == 2) { // top-left
-                cr.g.x = cr.o.x + widthHor;
-                cr.g.y = cr.o.y + widthVer;
+                cr.setX(CornerRadius.G, cr.getX(CornerRadius.O) + widthHor);
+                cr.setY(CornerRadius.G, cr.getY(CornerRadius.O) + widthVer);
             } else if (s == 3) { // bottom-right
-                cr.g.x = cr.o.x - widthHor;
-                cr.g.y = cr.o.y - widthVer;
+                cr.setX(CornerRadius.G, cr.getX(CornerRadius.O) - widthHor);
+                cr.setY(CornerRadius.G, cr.getY(CornerRadius.O) - widthVer);
             } else { // bottom-left
-                cr.g.x = cr.o.x + widthHor;
-                cr.g.y = cr.o.y - widthVer;
+                cr.setX(CornerRadius.G, cr.getX(CornerRadius.O) + widthHor);
+                cr.setY(CornerRadius.G, cr.getY(CornerRadius.O) - widthVer);
             }
             cr.isDrawn = false; // the rounded corner is not drawn
         } else if (widthHor == 0) { // if the zero width is in the horizontal direction and non-zero in the vertical direction
             if (s == 1 || s == 4) { // ramecek passes gradually into a single point (see DP)
-                cr.h.x = cr.c.x;
-                cr.h.y = cr.c.y;
-                cr.g.x = cr.c.x;
-                cr.g.y = cr.c.y;
+                cr.setX(CornerRadius.H, cr.getX(CornerRadius.C));
+                cr.setY(CornerRadius.H, cr.getY(CornerRadius.C));
+                cr.setX(CornerRadius.G, cr.getX(CornerRadius.C));
+                cr.setY(CornerRadius.G, cr.getY(CornerRadius.C));
             } else {
-                cr.h.x = cr.a.x;
-                cr.h.y = cr.a.y;
-                cr.g.x = cr.a.x;
-                cr.g.y = cr.a.y;
+                cr.setX(CornerRadius.H, cr.getX(CornerRadius.A));
+                cr.setY(CornerRadius.H, cr.getY(CornerRadius.A));
+                cr.setX(CornerRadius.G, cr.getX(CornerRadius.A));
+                cr.setY(CornerRadius.G, cr.getY(CornerRadius.A));
             }
         } else if (widthVer == 0) {// if the zero width is in the vertical direction and non-zero in the horizontal direction
             if (s == 1 || s == 4) {
-                cr.h.x = cr.a.x;
-                cr.h.y = cr.a.y;
-                cr.g.x = cr.a.x;
-                cr.g.y = cr.a.y;
+                cr.setX(CornerRadius.H, cr.getX(CornerRadius.A));
+                cr.setY(CornerRadius.H, cr.getY(CornerRadius.A));
+                cr.setX(CornerRadius.G, cr.getX(CornerRadius.A));
+                cr.setY(CornerRadius.G, cr.getY(CornerRadius.A));
             } else {
-                cr.h.x = cr.c.x;
-                cr.h.y = cr.c.y;
-                cr.g.x = cr.c.x;
-                cr.g.y = cr.c.y;
+                cr.setX(CornerRadius.H, cr.getX(CornerRadius.C));
+                cr.setY(CornerRadius.H, cr.getY(CornerRadius.C));
+                cr.setX(CornerRadius.G, cr.getX(CornerRadius.C));
+                cr.setY(CornerRadius.G, cr.getY(CornerRadius.C));
             }
         } else {
             // if none of the special cases occurred, we calculate the intersection of both ellipses with a straight line
-            cr.h = getIntersectPoint(cr.e, radx, rady, -cr.k, cr.z, cr.bounds);
-            cr.g = getIntersectPoint(cr.e, radx - widthHor, rady - widthVer, -cr.k, cr.z, cr.bounds);
+            setIntersectPoint(cr, CornerRadius.H, radx, rady, -cr.k, cr.z);
+            setIntersectPoint(cr, CornerRadius.G, radx - widthHor, rady - widthVer, -cr.k, cr.z);
         }
 
-        if (cr.q != null) {
-            cr.g.x = cr.q.x;
-            cr.g.y = cr.q.y;
+        if (cr.hasQ) {
+            cr.setPoint(CornerRadius.G, cr.getX(CornerRadius.Q), cr.getY(CornerRadius.Q));
         }
     }
 
     /**
-     * The intersection of the ellipse and the line
+     * The intersection of the ellipse and the line. Both intersections are stored
+     * to the given array as x1, y1, x2, y2.
      *
      * @param x0
      * @param y0
@@ -435,57 +485,50 @@ public abstract class Border {
      * @param b
      * @param k
      * @param c
-     * @return
+     * @param result - the array for the intersections
      */
-    private ArrayList<Double> ellipseLineIntersect(float x0, float y0, float a, float b, double k, double c) {
+    private void ellipseLineIntersect(float x0, float y0, float a, float b, double k, double c, double[] result) {
         double delta = c + k * x0;
         double eps = c - y0;
         double div = a * a * k * k + b * b;
-        double xLeft, yLeft, xRight, yRight, x1, x2, y1, y2;
+        double xLeft, yLeft, xRight, yRight;
         double mid = a * a * k * k + b * b - delta * delta - y0 * y0 + 2 * delta * y0;
         if (mid < 0) {
             mid = 0;
         }
         xLeft = x0 * b * b - k * a * a * eps;
         xRight = a * b * Math.sqrt(mid);
-        x1 = (xLeft + xRight) / div;
-        x2 = (xLeft - xRight) / div;
         yLeft = b * b * delta + y0 * a * a * k * k;
         yRight = a * b * k * Math.sqrt(mid);
-        y1 = (yLeft + yRight) / div;
-        y2 = (yLeft - yRight) / div;
-        ArrayList<Double> arl;
-        arl = new ArrayList<Double>();
-        arl.add(x1);
-        arl.add(y1);
-        arl.add(x2);
-        arl.add(y2);
-        return arl;
+        result[0] = (xLeft + xRight) / div;
+        result[1] = (yLeft + yRight) / div;
+        result[2] = (xLeft - xRight) / div;
+        result[3] = (yLeft - yRight) / div;
     }
 
     /**
-     * Method for calculating the intersection of a line and an ellipse, which selects the intersection,
-     * that is in the defined rectangle
+     * Method for calculating the intersection of a line and an ellipse centered in the point E
+     * of the corner, which selects the intersection that is in the corner bounds
      *
-     * @param center
+     * @param cr         - the corner
+     * @param point      - the index of the corner point where the intersection is stored
      * @param sizex
      * @param sizey
      * @param slope
      * @param yIntercept
-     * @param bounds
-     * @return
      */
-    public DPoint getIntersectPoint(DPoint center, float sizex, float sizey, double slope, double yIntercept,
-                                    Rectangle bounds) {
-        ArrayList<Double> arl = ellipseLineIntersect(center.x, center.y, sizex, sizey, slope, yIntercept);
-        DPoint p = new DPoint();
-        p.x = arl.get(0).floatValue();
-        p.y = arl.get(1).floatValue();
-        if (!isInBounds(bounds, p)) {
-            p.x = arl.get(2).floatValue();
-            p.y = arl.get(3).floatValue();
-        }
-        return p;
+    public void setIntersectPoint(CornerRadius cr, int point, float sizex, float sizey, double slope, double yIntercept) {
+        ellipseLineIntersect(cr.getX(CornerRadius.E), cr.getY(CornerRadius.E), sizex, sizey, slope, yIntercept, intersections);
+        final float x1 = (float) intersections[0];
+        final float y1 = (float) intersections[1];
+        if (isInBounds(cr.bounds, x1, y1))
+            cr.setPoint(point, x1, y1);
+        else
+            cr.setPoint(point, (float) intersections[2], (float) intersections[3]);
+    }
+
+    public boolean isInBounds(Rectangle r, float px, float py) {
+        return isInBounds(r.x, r.y, r.x + r.width, r.y + r.height, px, py);
     }
 
     public boolean isInBounds(Rectangle r, DPoint p) {
@@ -505,6 +548,9 @@ public abstract class Border {
      * @return color of selected side of border
      */
     public Color getBorderColor(ElementBox elem, String side) {
+        final int index = StyleFlags.side(side);
+        if (index >= 0 && sideColors[index] != null)
+            return sideColors[index];
         Color clr = null;
         // gets the color value from CSS property
         TermColor tclr = elem.getStyle().getSpecifiedValue(TermColor.class, "border-" + side + "-color");
@@ -525,9 +571,45 @@ public abstract class Border {
         }
         if (clr == null)
             clr = new Color(255, 255, 255);
+        if (index >= 0)
+            sideColors[index] = clr;
         return clr;
     }
 
+    /**
+     * Checks whether all the four sides of the border are visible and they have the same
+     * width, style and color so that the border may be drawn as a single frame.
+     *
+     * @param elem - instance of ElementBox
+     * @return {@code true} for a uniform border
+     */
+    public boolean isUniform(ElementBox elem) {
+        final float width = border.top;
+        if (width <= 0 || border.right != width || border.bottom != width || border.left != width)
+            return false;
+        if ((styleFlags & (StyleFlags.VISIBLE | StyleFlags.SAME_STYLE)) != (StyleFlags.VISIBLE | StyleFlags.SAME_STYLE))
+            return false;
+        final Color color = getBorderColor(elem, "top");
+        return sameColor(color, getBorderColor(elem, "right"))
+                && sameColor(color, getBorderColor(elem, "bottom"))
+                && sameColor(color, getBorderColor(elem, "left"));
+    }
+
+    private static boolean sameColor(Color c1, Color c2) {
+        return c1.getRed() == c2.getRed() && c1.getGreen() == c2.getGreen()
+                && c1.getBlue() == c2.getBlue() && c1.getAlpha() == c2.getAlpha();
+    }
+
+    /**
+     * Checks whether all the corners have the same radii.
+     *
+     * @return {@code true} when the corners are equal
+     */
+    public boolean hasUniformRadius() {
+        return topLeft.x == topRight.x && topLeft.x == bottomLeft.x && topLeft.x == bottomRight.x
+                && topLeft.y == topRight.y && topLeft.y == bottomLeft.y && topLeft.y == bottomRight.y;
+    }
+
     /**
      * method for render border
      *
@@ -548,15 +630,6 @@ public abstract class Border {
      * @return true if side is visible
      */
     public boolean borderIsVisible(ElementBox elem, String side) {
-        TermColor tclr = elem.getStyle().getValue(TermColor.class, "border-" + side + "-color");
-        CSSProperty.BorderStyle bst = elem.getStyle().getProperty("border-" + side + "-style");
-        if (bst != null
-                && bst != CSSProperty.BorderStyle.NONE
-                && bst != CSSProperty.BorderStyle.HIDDEN
-                && (tclr == null || !tclr.isTransparent())) {
-            return true;
-        } else {
-            return false;
-        }
+        return (styleFlags & StyleFlags.visible(side)) != 0;
     }
 }
\ No newline at end of file
@@ -22,19 +22,39 @@ public class BorderPDF extends Border {
     BreakAvoidTables breakAvoidTables;
     PDFOutput pdf;
 
-    public BorderPDF(LengthSet lengths, Rectangle bb, ElementBox eb, PDFRenderer pdfRenderer, BreakAvoidTables breakAvoidTables, PDFOutput pdf) {
-        super(lengths, bb, eb);
+    // the corner converted to the page coordinates, reused for all the corners
+    private final CornerRadius pageCorner = new CornerRadius();
+
+    public BorderPDF(LengthSet lengths, Rectangle bb, ElementBox eb, int styleFlags, PDFRenderer pdfRenderer, BreakAvoidTables breakAvoidTables, PDFOutput pdf) {
+        super(lengths, bb, eb, styleFlags);
         this.pdfRenderer = pdfRenderer;
         this.breakAvoidTables = breakAvoidTables;
         this.pdf = pdf;
     }
 
 
-    public BorderPDF(LengthSet lengths, Rectangle bb, ElementBox elem, PDFRenderer pdfRenderer) {
-        super(lengths, bb, elem);
+    public BorderPDF(LengthSet lengths, Rectangle bb, ElementBox elem, int styleFlags, PDFRenderer pdfRenderer) {
+        super(lengths, bb, elem, styleFlags);
         this.pdfRenderer = pdfRenderer;
     }
 
+    private BorderPDF(BorderPDF src) {
+        super(src);
+        this.pdfRenderer = src.pdfRenderer;
+        this.breakAvoidTables = src.breakAvoidTables;
+        this.pdf = src.pdf;
+    }
+
+    /**
+     * Creates a copy of the border with its own corners that may be converted to the page
+     * coordinates without recomputing the geometry.
+     *
+     * @return the border copy
+     */
+    public BorderPDF copy() {
+        return new BorderPDF(this);
+    }
+
 
     @Override
     public boolean writeBorder(ElementBox elem, Border border) throws IOException {
@@ -43,6 +63,8 @@ public class BorderPDF extends Border {
 
         Node node = breakAvoidTables.getNodeByElement(elem, breakAvoidTables.getRootNodeOfTree());
         if (node != null) {
+            // the same border on all sides with the same radii is drawn as a single frame
+            final boolean uniform = border.isUniform(elem) && border.hasUniformRadius();
             for (int i = 0; i < pdf.getPageCount(); i++) {
 
                 float pageStart = i * pdf.getPageHeight();
@@ -54,6 +76,14 @@ public class BorderPDF extends Border {
 
                 if ((startOfElement > pageStart && startOfElement < pageEnd) || (endOfElement > pageStart && endOfElement < pageEnd)) {
                     pdf.setCurrentPage(i);
+                    if (uniform) {
+                        final Rectangle bb = border.borderBounds;
+                        final float y = pdf.getPageHeight() - (bb.y + node.getPlusOffset() - i * pdf.getPageHeight()) - bb.height - node.getPlusHeight();
+                        pdf.drawBorderFrame(getBorderColor(elem, "top"), bb.x, y, bb.width, bb.height, borders.top,
+                                border.topLeft.x, border.topLeft.y);
+                        ret = true;
+                        continue;
+                    }
                     //Recalculate only corner, which are on current page
                     for (int j = 0; j < 4; j++) {
 
@@ -61,11 +91,11 @@ public class BorderPDF extends Border {
 
                         float pointA, pointC;
                         if ((j == 0) || (j == 1)) {
-                            pointA = cr.a.y + node.getPlusOffset();
-                            pointC = cr.c.y + node.getPlusOffset();
+                            pointA = cr.getY(CornerRadius.A) + node.getPlusOffset();
+                            pointC = cr.getY(CornerRadius.C) + node.getPlusOffset();
                         } else {
-                            pointA = cr.a.y + node.getPlusOffset() + node.getPlusHeight();
-                            pointC = cr.c.y + node.getPlusOffset() + node.getPlusHeight();
+                            pointA = cr.getY(CornerRadius.A) + node.getPlusOffset() + node.getPlusHeight();
+                            pointC = cr.getY(CornerRadius.C) + node.getPlusOffset() + node.getPlusHeight();
                         }
 
                         if ((pointA >= pageStart && pointA <= pageEnd) || (pointC >= pageStart && pointC <= pageEnd)) {
@@ -88,10 +118,10 @@ public class BorderPDF extends Border {
                     }
 
                     //generate straight lines
-                    ret |= writeBorderPDF(elem, border.topLeftH, border.topRightH, "top", borders.top, node.getPlusOffset(), node.getPlusHeight(), i);
-                    ret |= writeBorderPDF(elem, border.bottomLeftH, border.bottomRightH, "bottom", borders.bottom, node.getPlusOffset(), node.getPlusHeight(), i);
-                    ret |= writeBorderPDF(elem, border.bottomLeftV, border.topLeftV, "left", borders.left, node.getPlusOffset(), node.getPlusHeight(), i);
-                    ret |= writeBorderPDF(elem, border.bottomRightV, border.topRightV, "right", borders.right, node.getPlusOffset(), node.getPlusHeight(), i);
+                    ret |= writeBorderPDF(elem, border, TOP_LEFT_H, TOP_RIGHT_H, "top", borders.top, node.getPlusOffset(), node.getPlusHeight(), i);
+                    ret |= writeBorderPDF(elem, border, BOTTOM_LEFT_H, BOTTOM_RIGHT_H, "bottom", borders.bottom, node.getPlusOffset(), node.getPlusHeight(), i);
+                    ret |= writeBorderPDF(elem, border, BOTTOM_LEFT_V, TOP_LEFT_V, "left", borders.left, node.getPlusOffset(), node.getPlusHeight(), i);
+                    ret |= writeBorderPDF(elem, border, BOTTOM_RIGHT_V, TOP_RIGHT_V, "right", borders.right, node.getPlusOffset(), node.getPlusHeight(), i);
                 }
             }
         }
@@ -103,42 +133,45 @@ public class BorderPDF extends Border {
      * render straight line for border
      *
      * @param elem       - instance of ElementBox
-     * @param a          - start of actual border side
-     * @param b          - end of actual border side
+     * @param border     - the border
+     * @param a          - index of the start of actual border side
+     * @param b          - index of the end of actual border side
      * @param side       - actual side
      * @param widthLine  - width of border
      * @param plusOffset - plus offset for this element
      * @param plusHeight -plus height for this element
      * @param i          - actual page
      */
-    private boolean writeBorderPDF(ElementBox elem, DPoint a, DPoint b, String side, float widthLine, float plusOffset, float plusHeight, int i) throws IOException {
+    private boolean writeBorderPDF(ElementBox elem, Border border, int a, int b, String side, float widthLine, float plusOffset, float plusHeight, int i) throws IOException {
         if (borderIsVisible(elem, side)) {
+            final float ax = border.getEdgeX(a), ay = border.getEdgeY(a);
+            final float bx = border.getEdgeX(b), by = border.getEdgeY(b);
 
             float y = 0, x = 0, widthRect = 0, heightRect = 0;
             switch (side) {
                 case "top":
-                    x = a.x;
-                    y = pdf.getPageHeight() - (a.y + plusOffset - i * pdf.getPageHeight()) - widthLine - plusHeight;
-                    widthRect = b.x - a.x;
+                    x = ax;
+                    y = pdf.getPageHeight() - (ay + plusOffset - i * pdf.getPageHeight()) - widthLine - plusHeight;
+                    widthRect = bx - ax;
                     heightRect = widthLine;
                     break;
                 case "bottom":
-                    x = a.x;
-                    y = pdf.getPageHeight() - (a.y + plusOffset - i * pdf.getPageHeight()) - plusHeight;
-                    widthRect = b.x - a.x;
+                    x = ax;
+                    y = pdf.getPageHeight() - (ay + plusOffset - i * pdf.getPageHeight()) - plusHeight;
+                    widthRect = bx - ax;
                     heightRect = widthLine;
                     break;
                 case "left":
-                    x = a.x;
-                    y = pdf.getPageHeight() - (a.y + plusOffset - i * pdf.getPageHeight()) - plusHeight;
+                    x = ax;
+                    y = pdf.getPageHeight() - (ay + plusOffset - i * pdf.getPageHeight()) - plusHeight;
                     widthRect = widthLine;
-                    heightRect = a.y - b.y;
+                    heightRect = ay - by;
                     break;
                 case "right":
-                    x = a.x - widthLine;
-                    y = pdf.getPageHeight() - (a.y + plusOffset - i * pdf.getPageHeight()) - plusHeight;
+                    x = ax - widthLine;
+                    y = pdf.getPageHeight() - (ay + plusOffset - i * pdf.getPageHeight()) - plusHeight;
                     widthRect = widthLine;
-                    heightRect = a.y - b.y;
+                    heightRect = ay - by;
                     break;
             }
             if (heightRect != 0) {
@@ -165,36 +198,36 @@ public class BorderPDF extends Border {
      * @param node        - node corresponding with actual element
      */
     private boolean writeBorderCorner(Border border, int s, ElementBox elem, String side1, String side2, float plusOffset, float plusHeight, int currentPage, Node node) throws IOException {
-        CornerRadius crOld = border.getRadius(s);
-        CornerRadius cr = (CornerRadius) crOld.clone();
+        final CornerRadius cr = pageCorner;
+        cr.copyFrom(border.getRadius(s));
         pdf.recalculateYCoordinatesForPDFCorner(cr, node, currentPage);
         if (!cr.draw) {
             cr.setDraw(true);
             final float radx = cr.x;
             final float rady = cr.y;
             float widthHor, widthVer;
-            DPoint point1, point2;
+            int point1, point2;
             // depending on which corner is drawn, we get the frame widths and colors in the appropriate directions
             if (s == 1) { // top-right
                 widthHor = border.border.right;
                 widthVer = border.border.top;
-                point1 = border.topRightH;
-                point2 = border.topRightV;
+                point1 = TOP_RIGHT_H;
+                point2 = TOP_RIGHT_V;
             } else if (s == 2) { // top-left
                 widthHor = border.border.left;
                 widthVer = border.border.top;
-                point1 = border.topLeftV;
-                point2 = border.topLeftH;
+                point1 = TOP_LEFT_V;
+                point2 = TOP_LEFT_H;
             } else if (s == 3) { // bottom-right
                 widthHor = border.border.right;
                 widthVer = border.border.bottom;
-                point1 = border.bottomRightV;
-                point2 = border.bottomRightH;
+                point1 = BOTTOM_RIGHT_V;
+                point2 = BOTTOM_RIGHT_H;
             } else { // bottom-left
                 widthHor = border.border.left;
                 widthVer = border.border.bottom;
-                point1 = border.bottomLeftH;
-                point2 = border.bottomLeftV;
+                point1 = BOTTOM_LEFT_H;
+                point2 = BOTTOM_LEFT_V;
             }
             //render rounded corner
             if (radx > MIN || rady > MIN) {
@@ -209,9 +242,9 @@ public class BorderPDF extends Border {
                 //render normal corner
             } else if (widthHor > 0 || widthVer > 0) { // draw only if element has border
                 if (borderIsVisible(elem, side1))
-                    pdf.drawNormalCorner(point1, point2, node, currentPage, getBorderColor(elem, side1));
+                    pdf.drawNormalCorner(border, point1, point2, node, currentPage, getBorderColor(elem, side1));
                 if (borderIsVisible(elem, side2))
-                    pdf.drawNormalCorner(point2, point1, node, currentPage, getBorderColor(elem, side2));
+                    pdf.drawNormalCorner(border, point2, point1, node, currentPage, getBorderColor(elem, side2));
             } else {
                 return false;
             }
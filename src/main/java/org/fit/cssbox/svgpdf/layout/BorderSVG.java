@@ -19,8 +19,8 @@ import org.w3c.dom.Element;
 public class BorderSVG extends Border {
     SVGRenderer svgRenderer;
 
-    public BorderSVG(LengthSet lengths, Rectangle bb, ElementBox eb, SVGRenderer svgRenderer) {
-        super(lengths, bb, eb);
+    public BorderSVG(LengthSet lengths, Rectangle bb, ElementBox eb, int styleFlags, SVGRenderer svgRenderer) {
+        super(lengths, bb, eb, styleFlags);
         this.svgRenderer = svgRenderer;
     }
 
@@ -30,11 +30,17 @@ public class BorderSVG extends Border {
         boolean ret = false;
         final LengthSet borders = border.border;
 
+        // the same border on all sides with the same radii is drawn as a single frame
+        if (border.isUniform(elem) && border.hasUniformRadius()) {
+            writeBorderFrame(elem, border);
+            return true;
+        }
+
         // generate borders
-        ret |= writeBorderSVG(elem, border.topLeftH, border.topRightH, "top", borders.top);
-        ret |= writeBorderSVG(elem, border.topRightV, border.bottomRightV, "right", borders.right);
-        ret |= writeBorderSVG(elem, border.bottomLeftH, border.bottomRightH, "bottom", borders.bottom);
-        ret |= writeBorderSVG(elem, border.topLeftV, border.bottomLeftV, "left", borders.left);
+        ret |= writeBorderSVG(elem, border, TOP_LEFT_H, TOP_RIGHT_H, "top", borders.top);
+        ret |= writeBorderSVG(elem, border, TOP_RIGHT_V, BOTTOM_RIGHT_V, "right", borders.right);
+        ret |= writeBorderSVG(elem, border, BOTTOM_LEFT_H, BOTTOM_RIGHT_H, "bottom", borders.bottom);
+        ret |= writeBorderSVG(elem, border, TOP_LEFT_V, BOTTOM_LEFT_V, "left", borders.left);
 
         // generate corners
         ret |= writeBorderCorner(border, 1, elem, "top", "right");
@@ -46,39 +52,94 @@ public class BorderSVG extends Border {
     }
 
     /**
-     * @param elem  - instance of ElementBox
-     * @param a     - start of actual border side
-     * @param b     - end of actual border side
+     * Draws a uniform border as a single path consisting of the outer and the inner outline
+     * filled using the even-odd rule.
+     *
+     * @param elem   - instance of ElementBox
+     * @param border - the border
+     */
+    private void writeBorderFrame(ElementBox elem, Border border) {
+        final Rectangle bb = border.borderBounds;
+        final float width = border.border.top;
+        final float radx = border.topLeft.x;
+        final float rady = border.topLeft.y;
+        final SVGPathBuilder path = svgRenderer.getPathBuilder().reset();
+        appendRoundedRect(path, bb.x, bb.y, bb.width, bb.height, radx, rady);
+        final float iw = bb.width - 2 * width;
+        final float ih = bb.height - 2 * width;
+        if (iw > 0 && ih > 0) {
+            appendRoundedRect(path, bb.x + width, bb.y + width, iw, ih,
+                    Math.max(0, radx - width), Math.max(0, rady - width));
+        }
+        final Element e = svgRenderer.createPath(path.toString(), svgRenderer.colorString(getBorderColor(elem, "top")), "none", 0);
+        e.setAttribute("fill-rule", "evenodd");
+        svgRenderer.getCurrentElem().appendChild(e);
+
+        // the clip path of the background follows the inner edge as with the separate corners
+        if ((radx > MIN || rady > MIN) && (width > radx || width > rady)) {
+            for (int s = 1; s <= 4; s++)
+                border.getRadius(s).isDrawn = false;
+        }
+    }
+
+    private static void appendRoundedRect(SVGPathBuilder path, float x, float y, float w, float h, float radx, float rady) {
+        if (radx <= 0 || rady <= 0) {
+            path.moveTo(x, y);
+            path.lineTo(x + w, y);
+            path.lineTo(x + w, y + h);
+            path.lineTo(x, y + h);
+        } else {
+            path.moveTo(x + radx, y);
+            path.lineTo(x + w - radx, y);
+            path.arcTo(radx, rady, 0, false, true, x + w, y + rady);
+            path.lineTo(x + w, y + h - rady);
+            path.arcTo(radx, rady, 0, false, true, x + w - radx, y + h);
+            path.lineTo(x + radx, y + h);
+            path.arcTo(radx, rady, 0, false, true, x, y + h - rady);
+            path.lineTo(x, y + rady);
+            path.arcTo(radx, rady, 0, false, true, x + radx, y);
+        }
+        path.close();
+    }
+
+    /**
+     * @param elem   - instance of ElementBox
+     * @param border - the border
+     * @param a      - index of the start of actual border side
+     * @param b      - index of the end of actual border side
      * @param side  - actual side
      * @param width - width of actual side
      * @return {@code true} when something has been written
      */
-    private boolean writeBorderSVG(ElementBox elem, DPoint a, DPoint b, String side, float width) {
-        TermColor tclr = elem.getStyle().getValue(TermColor.class, "border-" + side + "-color");
-        CSSProperty.BorderStyle bst = elem.getStyle().getProperty("border-" + side + "-style");
+    private boolean writeBorderSVG(ElementBox elem, Border border, int a, int b, String side, float width) {
         if (borderIsVisible(elem, side)) {
             Color clr = getBorderColor(elem, side);
-            String coords = "";
+            final float ax = border.getEdgeX(a), ay = border.getEdgeY(a);
+            final float bx = border.getEdgeX(b), by = border.getEdgeY(b);
+            final SVGPathBuilder coords = svgRenderer.getPathBuilder().reset();
+            coords.moveTo(ax, ay);
+            coords.lineTo(bx, by);
             switch (side) {
                 case "left":
-                    coords = "M " + a.x + "," + a.y + " L " + b.x + "," + b.y + " L " + (b.x + width) + "," + b.y
-                            + " L " + (a.x + width) + "," + a.y;
+                    coords.lineTo(bx + width, by);
+                    coords.lineTo(ax + width, ay);
                     break;
                 case "top":
-                    coords = "M " + a.x + "," + a.y + " L " + b.x + "," + b.y + " L " + (b.x) + "," + (b.y + width)
-                            + " L " + a.x + "," + (a.y + width);
+                    coords.lineTo(bx, by + width);
+                    coords.lineTo(ax, ay + width);
                     break;
                 case "right":
-                    coords = "M " + a.x + "," + a.y + " L " + b.x + "," + b.y + " L " + (b.x - width) + "," + b.y
-                            + " L " + (a.x - width) + "," + a.y;
+                    coords.lineTo(bx - width, by);
+                    coords.lineTo(ax - width, ay);
                     break;
                 case "bottom":
-                    coords = "M " + a.x + "," + a.y + " L " + b.x + "," + b.y + " L " + (b.x) + "," + (b.y - width)
-                            + " L " + a.x + "," + (a.y - width);
+                    coords.lineTo(bx, by - width);
+                    coords.lineTo(ax, ay - width);
                     break;
             }
 
-            Element path = svgRenderer.createPath(coords, svgRenderer.colorString(clr), svgRenderer.colorString(clr), 0);
+            final String clrString = svgRenderer.colorString(clr);
+            Element path = svgRenderer.createPath(coords.toString(), clrString, clrString, 0);
             svgRenderer.getCurrentElem().appendChild(path);
             return true;
         } else
@@ -102,36 +163,36 @@ public class BorderSVG extends Border {
         TermColor startColor;
         TermColor stopColor;
         float widthHor, widthVer;
-        DPoint point1, point2;
+        int point1, point2;
 
         if (s == 1) { // top-right
             widthHor = border.border.right;
             widthVer = border.border.top;
             startColor = border.colorRight;
             stopColor = border.colorTop;
-            point1 = border.topRightH;
-            point2 = border.topRightV;
+            point1 = TOP_RIGHT_H;
+            point2 = TOP_RIGHT_V;
         } else if (s == 2) { // topleft
             widthHor = border.border.left;
             widthVer = border.border.top;
             startColor = border.colorTop;
             stopColor = border.colorLeft;
-            point1 = border.topLeftV;
-            point2 = border.topLeftH;
+            point1 = TOP_LEFT_V;
+            point2 = TOP_LEFT_H;
         } else if (s == 3) { // bottomright
             widthHor = border.border.right;
             widthVer = border.border.bottom;
             startColor = border.colorBottom;
             stopColor = border.colorRight;
-            point1 = border.bottomRightV;
-            point2 = border.bottomRightH;
+            point1 = BOTTOM_RIGHT_V;
+            point2 = BOTTOM_RIGHT_H;
         } else { // bottomleft
             widthHor = border.border.left;
             widthVer = border.border.bottom;
             startColor = border.colorLeft;
             stopColor = border.colorBottom;
-            point1 = border.bottomLeftH;
-            point2 = border.bottomLeftV;
+            point1 = BOTTOM_LEFT_H;
+            point2 = BOTTOM_LEFT_V;
         }
 
         if (startColor != null) {
@@ -143,27 +204,36 @@ public class BorderSVG extends Border {
         }
 
         if (radx > MIN || rady > MIN) {
-            String path1 = cr.getPathRadiusC(widthVer, widthHor);
-            String path2 = cr.getPathRadiusA(widthVer, widthHor);
+            // the corner paths are relative to the outer corner point so that they may be shared
+            final SVGPathBuilder pb = svgRenderer.getPathBuilder();
+            final boolean visible1 = borderIsVisible(elem, side1);
+            final boolean visible2 = borderIsVisible(elem, side2);
+            final String path1 = visible1 ? cr.getPathRadiusC(widthVer, widthHor, pb, cr.getX(CornerRadius.O), cr.getY(CornerRadius.O)) : "";
+            final String path2 = visible2 ? cr.getPathRadiusA(widthVer, widthHor, pb, cr.getX(CornerRadius.O), cr.getY(CornerRadius.O)) : "";
 
             if (widthVer > rady || widthHor > radx) {
                 cr.isDrawn = false;
             }
-            if (borderIsVisible(elem, side1)) {
-                Element q = svgRenderer.createPath(path1, cString1, "none", 1);
-                svgRenderer.getCurrentElem().appendChild(q);
-            }
-            if (borderIsVisible(elem, side2)) {
-                Element q = svgRenderer.createPath(path2, cString2, "none", 1);
-                svgRenderer.getCurrentElem().appendChild(q);
+            final String key = "corner:" + path1 + " " + cString1 + "|" + path2 + " " + cString2;
+            String id = svgRenderer.getDefinitions().getId(key);
+            if (id == null) {
+                if (visible1 && visible2)
+                    id = svgRenderer.addSymbol(key, svgRenderer.createPath(path1, cString1, "none", 1),
+                            svgRenderer.createPath(path2, cString2, "none", 1));
+                else if (visible1)
+                    id = svgRenderer.addSymbol(key, svgRenderer.createPath(path1, cString1, "none", 1));
+                else if (visible2)
+                    id = svgRenderer.addSymbol(key, svgRenderer.createPath(path2, cString2, "none", 1));
             }
+            if (id != null)
+                svgRenderer.getCurrentElem().appendChild(svgRenderer.createUse(id, cr.getX(CornerRadius.O), cr.getY(CornerRadius.O)));
         } else if (widthHor > 0 || widthVer > 0) {
             if (borderIsVisible(elem, side1)) {
-                Element corner1 = drawNormalCorner(point2, point1, cString1);
+                Element corner1 = drawNormalCorner(border, point2, point1, cString1);
                 svgRenderer.getCurrentElem().appendChild(corner1);
             }
             if (borderIsVisible(elem, side2)) {
-                Element corner2 = drawNormalCorner(point1, point2, cString2);
+                Element corner2 = drawNormalCorner(border, point1, point2, cString2);
                 svgRenderer.getCurrentElem().appendChild(corner2);
             }
         } else {
@@ -176,17 +246,18 @@ public class BorderSVG extends Border {
     /**
      * Method for render normal corner
      *
-     * @param point1 - first point for draw normal corner
-     * @param point2 - secont point for draw normal corne
+     * @param border - the border
+     * @param point1 - index of the first point for draw normal corner
+     * @param point2 - index of the second point for draw normal corne
      * @param color  - color for normal corner
      */
-    private Element drawNormalCorner(DPoint point1, DPoint point2, String color) {
-        String path = "M " + (point1.x) + " " + (point2.y) + " ";
-
-        path += "L " + (point2.x) + " " + (point1.y) + " ";
-        path += "L " + (point1.x) + " " + (point1.y) + " ";
+    private Element drawNormalCorner(Border border, int point1, int point2, String color) {
+        final SVGPathBuilder path = svgRenderer.getPathBuilder().reset();
+        path.moveTo(border.getEdgeX(point1), border.getEdgeY(point2));
+        path.lineTo(border.getEdgeX(point2), border.getEdgeY(point1));
+        path.lineTo(border.getEdgeX(point1), border.getEdgeY(point1));
 
-        return svgRenderer.createPath(path, color, "none", 0);
+        return svgRenderer.createPath(path.toString(), color, "none", 0);
 
     }
 
@@ -197,54 +268,48 @@ public class BorderSVG extends Border {
      * @return
      */
     public Element getClipPathElementForBorder(Border border) {
-        Element q;
+        return svgRenderer.createPath(getClipPathData(border, 0, 0), "none", "none", 0);
+    }
+
+    /**
+     * Creates the path data of the clip path of the border. The coordinates are relative to the given
+     * origin, so that the boxes of the same shape produce the same path data.
+     *
+     * @param border - the border
+     * @param ox     - x coordinate of the origin
+     * @param oy     - y coordinate of the origin
+     * @return the path data
+     */
+    public String getClipPathData(Border border, float ox, float oy) {
         CornerRadius crTopLeft = border.getRadius(2);
         CornerRadius crTopRight = border.getRadius(1);
         CornerRadius crBottomLeft = border.getRadius(4);
         CornerRadius crBottomRight = border.getRadius(3);
 
-        String path = "M " + (crTopLeft.c.x) + " " + (crTopLeft.c.y) + " ";
-
-        path += " L " + crTopRight.a.x + " " + (crTopRight.a.y) + " ";
-
-        if (crTopRight.isDrawn) {
-            path += " A " + crTopRight.x + " " + crTopRight.y + " 0 0 1 "
-                    + crTopRight.c.x + " " + crTopRight.c.y;
-        } else {
-            path += " L " + crTopRight.h.x + " " + crTopRight.h.y;
-            path += " L " + crTopRight.c.x + " " + crTopRight.c.y;
-        }
-
-        path += " L " + crBottomRight.a.x + " " + (crBottomRight.a.y) + " ";
-
-        if (crBottomRight.isDrawn) {
-            path += " A " + crBottomRight.x + " " + crBottomRight.y
-                    + " 0 0 1 " + crBottomRight.c.x + " " + crBottomRight.c.y;
-        } else {
-            path += " L " + crBottomRight.h.x + " " + crBottomRight.h.y;
-            path += " L " + crBottomRight.c.x + " " + crBottomRight.c.y;
-        }
-
-        path += " L " + crBottomLeft.a.x + " " + (crBottomLeft.a.y) + " ";
-
-        if (crBottomLeft.isDrawn) {
-            path += " A " + crBottomLeft.x + " " + crBottomLeft.y
-                    + " 0 0 1 " + crBottomLeft.c.x + " " + crBottomLeft.c.y;
-        } else {
-            path += " L " + crBottomLeft.h.x + " " + crBottomLeft.h.y;
-            path += " L " + crBottomLeft.c.x + " " + crBottomLeft.c.y;
-        }
-
-        path += " L " + crTopLeft.a.x + " " + (crTopLeft.a.y) + " ";
+        final SVGPathBuilder path = svgRenderer.getPathBuilder().reset();
+        path.moveTo(crTopLeft.getX(CornerRadius.C) - ox, crTopLeft.getY(CornerRadius.C) - oy);
+        appendClipCorner(path, crTopRight, ox, oy);
+        appendClipCorner(path, crBottomRight, ox, oy);
+        appendClipCorner(path, crBottomLeft, ox, oy);
+        appendClipCorner(path, crTopLeft, ox, oy);
+        return path.toString();
+    }
 
-        if (crTopLeft.isDrawn) {
-            path += " A " + crTopLeft.x + " " + crTopLeft.y + " 0 0 1 "
-                    + crTopLeft.c.x + " " + crTopLeft.c.y;
+    /**
+     * Appends the line to the start of a corner and the corner itself to the clip path
+     *
+     * @param path - the path to append to
+     * @param cr   - the corner
+     * @param ox   - x coordinate of the origin
+     * @param oy   - y coordinate of the origin
+     */
+    private void appendClipCorner(SVGPathBuilder path, CornerRadius cr, float ox, float oy) {
+        path.lineTo(cr.getX(CornerRadius.A) - ox, cr.getY(CornerRadius.A) - oy);
+        if (cr.isDrawn) {
+            path.arcTo(cr.x, cr.y, 0, false, true, cr.getX(CornerRadius.C) - ox, cr.getY(CornerRadius.C) - oy);
         } else {
-            path += " L " + crTopLeft.h.x + " " + crTopLeft.h.y;
-            path += " L " + crTopLeft.c.x + " " + crTopLeft.c.y;
+            path.lineTo(cr.getX(CornerRadius.H) - ox, cr.getY(CornerRadius.H) - oy);
+            path.lineTo(cr.getX(CornerRadius.C) - ox, cr.getY(CornerRadius.C) - oy);
         }
-        q = svgRenderer.createPath(path, "none", "none", 0);
-        return q;
     }
 }
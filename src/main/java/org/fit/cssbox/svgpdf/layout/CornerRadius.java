@@ -11,21 +11,28 @@ import org.fit.cssbox.layout.Rectangle;
  * @author Tomas Chocholaty
  */
 public class CornerRadius implements Cloneable {
+    // indices of the individual points, see the technical report for the diploma thesis
+    public static final int A = 0;
+    public static final int B = 1;
+    public static final int C = 2;
+    public static final int D = 3;
+    public static final int E = 4;
+    public static final int O = 5;
+    public static final int G = 6;
+    public static final int H = 7;
+    public static final int Q = 8;
+
+    private static final int POINT_COUNT = 9;
+
     //
     public float x;
     public float y;
 
-    // jednotlive body
-    public DPoint a;
-    public DPoint b;
-    public DPoint c;
-    public DPoint d;
-    public DPoint e;
-    public DPoint o;
-    public DPoint g;
-    public DPoint h;
+    // jednotlive body; the coordinates of point i are stored at 2 * i (x) and 2 * i + 1 (y)
+    public float[] points;
 
-    public DPoint q;
+    // the point Q is defined
+    public boolean hasQ;
 
     // smernice a vysek na ose y pro hranicni primku
     public double z;
@@ -42,28 +49,25 @@ public class CornerRadius implements Cloneable {
 
 
     public CornerRadius() {
-        this.o = new DPoint();
-        this.e = new DPoint();
-        this.d = new DPoint();
-        this.g = new DPoint();
-        this.h = new DPoint();
-        this.a = new DPoint();
-        this.b = new DPoint();
-        this.c = new DPoint();
+        this.points = new float[2 * POINT_COUNT];
     }
 
     public CornerRadius(float x, float y, DPoint a, DPoint b, DPoint c, DPoint d, DPoint e, DPoint o, DPoint g, DPoint h, DPoint q, int s) {
+        this();
         this.x = x;
         this.y = y;
-        this.a = a;
-        this.b = b;
-        this.c = c;
-        this.d = d;
-        this.e = e;
-        this.o = o;
-        this.g = g;
-        this.h = h;
-        this.q = q;
+        setPoint(A, a.x, a.y);
+        setPoint(B, b.x, b.y);
+        setPoint(C, c.x, c.y);
+        setPoint(D, d.x, d.y);
+        setPoint(E, e.x, e.y);
+        setPoint(O, o.x, o.y);
+        setPoint(G, g.x, g.y);
+        setPoint(H, h.x, h.y);
+        if (q != null) {
+            setPoint(Q, q.x, q.y);
+            hasQ = true;
+        }
         this.s = s;
     }
 
@@ -75,15 +79,8 @@ public class CornerRadius implements Cloneable {
      * @param ss
      */
     public CornerRadius(float radx, float rady, int ss) {
-        this.o = new DPoint();
-        this.e = new DPoint();
-        this.d = new DPoint();
-        this.g = new DPoint();
-        this.h = new DPoint();
-        this.a = new DPoint();
-        this.b = new DPoint();
-        this.c = new DPoint();
-        q = null;
+        this();
+        hasQ = false;
         x = radx;
         y = rady;
         s = ss;
@@ -97,22 +94,52 @@ public class CornerRadius implements Cloneable {
         CornerRadius cr = null;
         try {
             cr = (CornerRadius) super.clone();
-            cr.x = this.x;
-            cr.y = this.y;
-            cr.o = (DPoint) o.clone();
-            cr.e = (DPoint) e.clone();
-            cr.d = (DPoint) d.clone();
-            cr.g = (DPoint) g.clone();
-            cr.h = (DPoint) h.clone();
-            cr.a = (DPoint) a.clone();
-            cr.b = (DPoint) b.clone();
-            cr.c = (DPoint) c.clone();
+            cr.points = points.clone();
         } catch (CloneNotSupportedException cloneNotSupportedException) {
             cloneNotSupportedException.printStackTrace();
         }
         return cr;
     }
 
+    /**
+     * Copies all the values of another corner to this corner without allocating new objects.
+     *
+     * @param src - the source corner
+     */
+    public void copyFrom(CornerRadius src) {
+        x = src.x;
+        y = src.y;
+        System.arraycopy(src.points, 0, points, 0, points.length);
+        hasQ = src.hasQ;
+        z = src.z;
+        k = src.k;
+        bounds = src.bounds;
+        s = src.s;
+        isDrawn = src.isDrawn;
+        draw = src.draw;
+    }
+
+    public float getX(int point) {
+        return points[2 * point];
+    }
+
+    public float getY(int point) {
+        return points[2 * point + 1];
+    }
+
+    public void setX(int point, float value) {
+        points[2 * point] = value;
+    }
+
+    public void setY(int point, float value) {
+        points[2 * point + 1] = value;
+    }
+
+    public void setPoint(int point, float px, float py) {
+        points[2 * point] = px;
+        points[2 * point + 1] = py;
+    }
+
     public boolean isDraw() {
         return draw;
     }
@@ -130,27 +157,67 @@ public class CornerRadius implements Cloneable {
      * @return String representing path
      */
     public String getPathRadiusC(float widthVer, float widthHor) {
-        String path1 = "";
-        path1 += "M " + d.x + " " + d.y + " ";
+        return getPathRadiusC(widthVer, widthHor, new SVGNumberFormat());
+    }
+
+    /**
+     * vygenerovani SVG kodu do atributu pro tag path. tato cast vykresluje
+     * jednu pulku rohu (mezi body C, D, G a H)
+     *
+     * @param widthVer - vertical width
+     * @param widthHor - horizontal width
+     * @param nf       - formatter used for the coordinates
+     * @return String representing path
+     */
+    public String getPathRadiusC(float widthVer, float widthHor, SVGNumberFormat nf) {
+        return getPathRadiusC(widthVer, widthHor, nf, 0, 0);
+    }
+
+    /**
+     * Generates the same path as {@link #getPathRadiusC(float, float, SVGNumberFormat)} with the
+     * coordinates relative to the given origin.
+     *
+     * @param widthVer - vertical width
+     * @param widthHor - horizontal width
+     * @param nf       - formatter used for the coordinates
+     * @param ox       - x coordinate of the origin
+     * @param oy       - y coordinate of the origin
+     * @return String representing path
+     */
+    public String getPathRadiusC(float widthVer, float widthHor, SVGNumberFormat nf, float ox, float oy) {
+        return getPathRadiusC(widthVer, widthHor, new SVGPathBuilder(nf), ox, oy);
+    }
+
+    /**
+     * Generates the same path as {@link #getPathRadiusC(float, float, SVGNumberFormat, float, float)}
+     * using a reusable path builder.
+     *
+     * @param widthVer - vertical width
+     * @param widthHor - horizontal width
+     * @param path     - the path builder; it is reset before use
+     * @param ox       - x coordinate of the origin
+     * @param oy       - y coordinate of the origin
+     * @return String representing path
+     */
+    public String getPathRadiusC(float widthVer, float widthHor, SVGPathBuilder path, float ox, float oy) {
+        path.reset();
+        path.moveTo(getX(D) - ox, getY(D) - oy);
         if (widthVer > y || widthHor > x) {
-            path1 += " L " + Math.round(g.x) + " " + Math.round(g.y) + " ";
+            path.lineTo(Math.round(getX(G) - ox), Math.round(getY(G) - oy));
         } else {
-            path1 += " A " + (x - widthHor) + " " + (y - widthVer) + " 0 0 0 " + Math.round(g.x) + " "
-                    + Math.round(g.y);
+            path.arcTo(x - widthHor, y - widthVer, 0, false, false, Math.round(getX(G) - ox), Math.round(getY(G) - oy));
         }
-        path1 += " L " + Math.round(h.x) + " " + Math.round(h.y) + " ";
-        path1 += " A " + x + " " + y + " 0 0 1 " + c.x + " " + c.y;
+        path.lineTo(Math.round(getX(H) - ox), Math.round(getY(H) - oy));
+        path.arcTo(x, y, 0, false, true, getX(C) - ox, getY(C) - oy);
 
         if (widthVer > y || widthHor > x) {
             if (s == 1 || s == 4) {
-                path1 += " L " + o.x + " " + d.y + " ";
+                path.lineTo(getX(O) - ox, getY(D) - oy);
             } else {
-                path1 += " L " + d.x + " " + o.y + " ";
+                path.lineTo(getX(D) - ox, getY(O) - oy);
             }
         }
-
-        return path1;
-
+        return path.toString();
     }
 
     /**
@@ -162,29 +229,67 @@ public class CornerRadius implements Cloneable {
      * @return String representing path
      */
     public String getPathRadiusA(float widthVer, float widthHor) {
-        String path2 = "";
+        return getPathRadiusA(widthVer, widthHor, new SVGNumberFormat());
+    }
 
-        path2 += " M " + b.x + " " + b.y + " ";
+    /**
+     * vygenerovani SVG kodu do atributu pro tag path. tato cast vykresluje
+     * jednu pulku rohu (mezi body A, B, G a H)
+     *
+     * @param widthVer - vertical wisth
+     * @param widthHor - horizontal width
+     * @param nf       - formatter used for the coordinates
+     * @return String representing path
+     */
+    public String getPathRadiusA(float widthVer, float widthHor, SVGNumberFormat nf) {
+        return getPathRadiusA(widthVer, widthHor, nf, 0, 0);
+    }
+
+    /**
+     * Generates the same path as {@link #getPathRadiusA(float, float, SVGNumberFormat)} with the
+     * coordinates relative to the given origin.
+     *
+     * @param widthVer - vertical width
+     * @param widthHor - horizontal width
+     * @param nf       - formatter used for the coordinates
+     * @param ox       - x coordinate of the origin
+     * @param oy       - y coordinate of the origin
+     * @return String representing path
+     */
+    public String getPathRadiusA(float widthVer, float widthHor, SVGNumberFormat nf, float ox, float oy) {
+        return getPathRadiusA(widthVer, widthHor, new SVGPathBuilder(nf), ox, oy);
+    }
+
+    /**
+     * Generates the same path as {@link #getPathRadiusA(float, float, SVGNumberFormat, float, float)}
+     * using a reusable path builder.
+     *
+     * @param widthVer - vertical width
+     * @param widthHor - horizontal width
+     * @param path     - the path builder; it is reset before use
+     * @param ox       - x coordinate of the origin
+     * @param oy       - y coordinate of the origin
+     * @return String representing path
+     */
+    public String getPathRadiusA(float widthVer, float widthHor, SVGPathBuilder path, float ox, float oy) {
+        path.reset();
+        path.moveTo(getX(B) - ox, getY(B) - oy);
         if (widthVer > y || widthHor > x) {
-            path2 += " L " + Math.round(g.x) + " " + Math.round(g.y) + " ";
+            path.lineTo(Math.round(getX(G) - ox), Math.round(getY(G) - oy));
         } else {
-            path2 += " A " + (x - widthHor) + " " + (y - widthVer) + " 0 0 1 " + Math.round(g.x) + " "
-                    + Math.round(g.y);
+            path.arcTo(x - widthHor, y - widthVer, 0, false, true, Math.round(getX(G) - ox), Math.round(getY(G) - oy));
         }
-        path2 += " L " + Math.round(h.x) + " " + Math.round(h.y) + " ";
-
-        path2 += " A " + x + " " + y + " 0 0 0 " + a.x + " " + a.y;
-
+        path.lineTo(Math.round(getX(H) - ox), Math.round(getY(H) - oy));
+        path.arcTo(x, y, 0, false, false, getX(A) - ox, getY(A) - oy);
 
         if (widthVer > y || widthHor > x) {
             if (s == 1 || s == 4) {
-                path2 += " L " + b.x + " " + o.y + " ";
+                path.lineTo(getX(B) - ox, getY(O) - oy);
             } else {
-                path2 += " L " + o.x + " " + b.y + " ";
-
+                path.lineTo(getX(O) - ox, getY(B) - oy);
             }
         }
-        return path2;
+        return path.toString();
     }
 
 }
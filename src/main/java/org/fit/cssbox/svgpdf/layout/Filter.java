@@ -8,7 +8,11 @@ import org.fit.cssbox.layout.ElementBox;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.RescaleOp;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class is used for applicating graphics effects to the pictures.
@@ -17,6 +21,11 @@ import java.awt.image.RescaleOp;
  * @author Tomas Chocholaty
  */
 public class Filter {
+    /**
+     * The minimal number of pixels processed by a single task
+     */
+    private static final int BAND_PIXELS = 1 << 16;
+
     // filter variables
     public float invert;
     public float grayscale;
@@ -33,126 +42,286 @@ public class Filter {
     }
 
     /**
-     * This function represents CSS3 filter function brightness() and opacity()
+     * Creates the lookup table of the CSS3 filter function invert() for the color channels.
+     * It corresponds to the transfer function table [amount, 1 - amount] of the Filter Effects
+     * specification.
      *
-     * @param img - the original image to be filtered
-     * @return the filtered image
+     * @return the lookup table
      */
-    private BufferedImage setBrightOpacImg(BufferedImage img) {
-        float[] factors;
-
-        factors = new float[]{bright, bright, bright, opacity};
-
-        float[] offsets = new float[]{0, 0, 0, 0};
-        RescaleOp op = new RescaleOp(factors, offsets, null);
-        BufferedImage bi = new BufferedImage(
-                img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = bi.createGraphics();
-        g.drawImage(img, 0, 0, null);
-        g.dispose();
-        img = op.filter(bi, bi);
-        return img;
+    private int[] invertTable() {
+        final float amount = Math.min(1, Math.max(0, invert));
+        final int[] lut = new int[256];
+        for (int c = 0; c < 256; c++)
+            lut[c] = clamp(Math.round(255 * amount + c * (1 - 2 * amount)));
+        return lut;
     }
 
     /**
-     * This function represents CSS3 filter function invert()
+     * Creates the lookup table that scales a channel by the given factor. It represents the CSS3
+     * filter functions brightness() (color channels) and opacity() (alpha channel).
      *
-     * @param img - the original image to be filtered
-     * @return the filtered image
+     * @param factor - the scale factor
+     * @return the lookup table
      */
-    private BufferedImage invertImg(BufferedImage img) {
-        for (int x = 0; x < img.getWidth(); x++) {
-            for (int y = 0; y < img.getHeight(); y++) {
-                int rgba = img.getRGB(x, y);
-                // get values of each component of the RGBA model
-                int a = (rgba >> 24) & 0xff;
-                int red = (rgba >> 16) & 0xff;
-                int green = (rgba >> 8) & 0xff;
-                int blue = rgba & 0xff;
-
-                if (invert < 0.5) { // because of the white picture when invert is 0
-                    red = (int) ((255 * invert) - red);
-                    green = (int) ((255 * invert) - green);
-                    blue = (int) ((255 * invert) - blue);
-
-                } else if (invert == 0.5) { // when is 0.5 then the picture is covered with gray colour
-                    red = 128;
-                    green = 128;
-                    blue = 128;
-                } else {
-                    red = (int) (255 - (red * invert));
-                    green = (int) (255 - (green * invert));
-                    blue = (int) (255 - (blue * invert));
-                }
-                // component must have the value in range 0-255
-                if (red < 0) red *= -1;
-                if (green < 0) green *= -1;
-                if (blue < 0) blue *= -1;
-                if (a < 0) a *= -1;
+    private static int[] scaleTable(float factor) {
+        final int[] lut = new int[256];
+        for (int c = 0; c < 256; c++)
+            lut[c] = clamp((int) (c * factor));
+        return lut;
+    }
+
+    /**
+     * Creates the color matrix of the CSS3 filter function grayscale().
+     *
+     * @return the matrix or {@code null} when the function has no effect
+     */
+    private float[] grayscaleMatrix() {
+        if (grayscale <= 0) return null;
+        return grayscaleMatrix(Math.min(grayscale, 1));
+    }
 
-                //col = new Color(red, green, blue);
-                rgba = (a << 24) | (red << 16) | (green << 8) | blue;
-                img.setRGB(x, y, rgba); // set pixel with new colour to the image
+    /**
+     * Creates the color matrix of the grayscale() function as defined by the Filter Effects
+     * specification (the Rec. 709 luminance coefficients). The alpha channel is preserved.
+     *
+     * @param amount - the grayscale amount (0..1)
+     * @return the matrix, rows R, G, B, A and columns r, g, b, a, offset
+     */
+    public static float[] grayscaleMatrix(float amount) {
+        final float a = 1 - amount;
+        return new float[]{
+                0.2126f + 0.7874f * a, 0.7152f - 0.7152f * a, 0.0722f - 0.0722f * a, 0, 0,
+                0.2126f - 0.2126f * a, 0.7152f + 0.2848f * a, 0.0722f - 0.0722f * a, 0, 0,
+                0.2126f - 0.2126f * a, 0.7152f - 0.7152f * a, 0.0722f + 0.9278f * a, 0, 0,
+                0, 0, 0, 1, 0};
+    }
 
+    /**
+     * Compiles the filter functions to a sequence of passes over the image. Each pass consists
+     * of a per-channel lookup table, a 5x4 color matrix and another per-channel lookup table.
+     * The per-channel functions (invert, brightness, opacity) are merged to the lookup tables,
+     * the grayscale() function is the matrix. A usual filter chain is compiled to a single pass.
+     *
+     * @return the list of passes, empty when no supported function is used
+     */
+    private List<FilterPass> compile() {
+        final List<FilterPass> passes = new ArrayList<>(1);
+        if (filterType == null)
+            return passes;
+        FilterPass pass = null;
+        for (String type : filterType) {
+            if ("grayscale".equals(type)) {
+                final float[] matrix = grayscaleMatrix();
+                if (matrix == null)
+                    continue;
+                if (pass == null || pass.matrix != null) {
+                    pass = new FilterPass();
+                    passes.add(pass);
+                }
+                // the previous per-channel functions are applied before the matrix
+                pass.pre = pass.post;
+                pass.post = null;
+                pass.matrix = matrix;
+            } else {
+                final int[] colorLut, alphaLut;
+                if ("invert".equals(type)) {
+                    if (invert == 0)
+                        continue;
+                    colorLut = invertTable();
+                    alphaLut = null;
+                } else if ("bright".equals(type)) {
+                    colorLut = scaleTable(bright);
+                    alphaLut = null;
+                } else if ("opacity".equals(type)) {
+                    colorLut = null;
+                    alphaLut = scaleTable(opacity);
+                } else {
+                    continue;
+                }
+                if (pass == null) {
+                    pass = new FilterPass();
+                    passes.add(pass);
+                }
+                pass.post = FilterPass.compose(pass.post, colorLut, alphaLut);
             }
         }
-        return img;
+        return passes;
     }
 
     /**
-     * This function represents CSS3 filter function grayscale(). However, it is
-     * working only with grayscale parameter 100%
+     * Creates a normalized description of the filter functions that have an effect on the image
+     * and their parameters in the order of application. Two filters with the same key produce
+     * the same result.
      *
-     * @param img - the original image to be filtered
-     * @return the filtered image
+     * @return the filter key or an empty string when the filter has no effect
      */
-    private BufferedImage grayScaleImg(BufferedImage img) {
-        int width = img.getWidth();
-        int height = img.getHeight();
-        if (grayscale > 1) grayscale = 1;
-        if (grayscale <= 0) return img;
-        grayscale = 1 - grayscale + 1;
-        for (int i = 0; i < height; i++) {
-
-            for (int j = 0; j < width; j++) {
-
-                Color c = new Color(img.getRGB(j, i));
-                // calculating gray scale with luminosity method
-                int red = (int) ((c.getRed() * 0.299) * grayscale);
-                int green = (int) ((c.getGreen() * 0.587) * grayscale);
-                int blue = (int) ((c.getBlue() * 0.114) * grayscale);
-                int rgb = red + green + blue;
-                if (rgb < 0) rgb = 0;
-                if (rgb > 255) rgb = 255;
-                Color newColor = new Color(rgb, rgb, rgb);
-
-                img.setRGB(j, i, newColor.getRGB());
+    public String getKey() {
+        final StringBuilder key = new StringBuilder();
+        if (filterType != null) {
+            for (String type : filterType) {
+                if ("invert".equals(type) && invert != 0)
+                    key.append("invert(").append(invert).append(')');
+                else if ("bright".equals(type) && bright != 1)
+                    key.append("brightness(").append(bright).append(')');
+                else if ("opacity".equals(type) && opacity != 1)
+                    key.append("opacity(").append(opacity).append(')');
+                else if ("grayscale".equals(type) && grayscale > 0)
+                    key.append("grayscale(").append(Math.min(grayscale, 1)).append(')');
             }
         }
-        return img;
+        return key.toString();
     }
 
     /**
-     * This function invokes other methods from this class depending on the
-     * filter name.
+     * This function applies the filter functions to the image. The image is converted to ARGB once
+     * and the whole filter chain is applied to its pixel array in a single pass when possible;
+     * the original image is not modified.
      *
      * @param img - the original image to be filtered
      * @return the filtered image
      */
     public BufferedImage filterImg(BufferedImage img) {
-        if (filterType != null) {
-            for (int n = 0; n < filterType.length; n++) {
-                if (filterType[n] == "invert")
-                    img = invertImg(img);
-                else if ((filterType[n] == "bright") || (filterType[n] == "opacity"))
-                    img = setBrightOpacImg(img);
-                else if ((filterType[n] == "grayscale"))
-                    img = grayScaleImg(img);
-            }
+        final List<FilterPass> passes = compile();
+        if (!passes.isEmpty()) {
+            final BufferedImage bi = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D g = bi.createGraphics();
+            g.drawImage(img, 0, 0, null);
+            g.dispose();
+            final int[] data = ((DataBufferInt) bi.getRaster().getDataBuffer()).getData();
+            for (FilterPass pass : passes)
+                apply(data, bi.getWidth(), pass);
+            img = bi;
         }
         return img;
     }
 
+    private static int clamp(int value) {
+        return (value < 0) ? 0 : ((value > 255) ? 255 : value);
+    }
+
+    /**
+     * Applies a filter pass to the whole image. Large images are split to row bands
+     * processed in parallel in the common fork-join pool.
+     *
+     * @param data   - the image pixels
+     * @param width  - the image width
+     * @param kernel - the pass to apply
+     */
+    private static void apply(int[] data, int width, FilterPass kernel) {
+        if (data.length <= BAND_PIXELS || width <= 0)
+            kernel.apply(data, 0, data.length);
+        else
+            ForkJoinPool.commonPool().invoke(new BandTask(data, kernel, 0, data.length / width, width));
+    }
+
+    /**
+     * A single pass of the compiled filter chain
+     */
+    private static class FilterPass {
+        /**
+         * Per-channel lookup tables applied before the matrix; 4 x 256 entries in the ARGB order or {@code null}
+         */
+        int[] pre;
+        /**
+         * The color matrix, rows R, G, B, A and columns r, g, b, a, offset or {@code null} for identity
+         */
+        float[] matrix;
+        /**
+         * Per-channel lookup tables applied after the matrix; 4 x 256 entries in the ARGB order or {@code null}
+         */
+        int[] post;
+
+        /**
+         * Composes the lookup tables with another per-channel function.
+         *
+         * @param luts     - the current tables or {@code null} for identity
+         * @param colorLut - the table applied to the color channels or {@code null} for identity
+         * @param alphaLut - the table applied to the alpha channel or {@code null} for identity
+         * @return the composed tables
+         */
+        static int[] compose(int[] luts, int[] colorLut, int[] alphaLut) {
+            if (luts == null) {
+                luts = new int[4 * 256];
+                for (int i = 0; i < luts.length; i++)
+                    luts[i] = i & 0xff;
+            }
+            for (int i = 0; i < 256; i++) {
+                if (alphaLut != null)
+                    luts[i] = alphaLut[luts[i]];
+                if (colorLut != null) {
+                    luts[256 + i] = colorLut[luts[256 + i]];
+                    luts[512 + i] = colorLut[luts[512 + i]];
+                    luts[768 + i] = colorLut[luts[768 + i]];
+                }
+            }
+            return luts;
+        }
+
+        void apply(int[] pixels, int from, int to) {
+            final int[] pre = this.pre;
+            final float[] m = this.matrix;
+            final int[] post = this.post;
+            for (int i = from; i < to; i++) {
+                final int argb = pixels[i];
+                int a = (argb >>> 24) & 0xff;
+                int r = (argb >> 16) & 0xff;
+                int g = (argb >> 8) & 0xff;
+                int b = argb & 0xff;
+                if (pre != null) {
+                    a = pre[a];
+                    r = pre[256 + r];
+                    g = pre[512 + g];
+                    b = pre[768 + b];
+                }
+                if (m != null) {
+                    final int nr = clamp((int) (m[0] * r + m[1] * g + m[2] * b + m[3] * a + m[4]));
+                    final int ng = clamp((int) (m[5] * r + m[6] * g + m[7] * b + m[8] * a + m[9]));
+                    final int nb = clamp((int) (m[10] * r + m[11] * g + m[12] * b + m[13] * a + m[14]));
+                    a = clamp((int) (m[15] * r + m[16] * g + m[17] * b + m[18] * a + m[19]));
+                    r = nr;
+                    g = ng;
+                    b = nb;
+                }
+                if (post != null) {
+                    a = post[a];
+                    r = post[256 + r];
+                    g = post[512 + g];
+                    b = post[768 + b];
+                }
+                pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    /**
+     * A task processing a band of image rows
+     */
+    private static class BandTask extends RecursiveAction {
+        private final int[] data;
+        private final FilterPass kernel;
+        private final int startRow;
+        private final int endRow;
+        private final int width;
+
+        BandTask(int[] data, FilterPass kernel, int startRow, int endRow, int width) {
+            this.data = data;
+            this.kernel = kernel;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.width = width;
+        }
+
+        @Override
+        protected void compute() {
+            if ((endRow - startRow) * width <= BAND_PIXELS || endRow - startRow < 2) {
+                kernel.apply(data, startRow * width, endRow * width);
+            } else {
+                final int mid = (startRow + endRow) >>> 1;
+                invokeAll(new BandTask(data, kernel, startRow, mid, width),
+                        new BandTask(data, kernel, mid, endRow, width));
+            }
+        }
+    }
 
     /**
      * Creates a filter structure based on the element style.
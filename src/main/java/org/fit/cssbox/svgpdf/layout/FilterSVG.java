@@ -0,0 +1,102 @@
+package org.fit.cssbox.svgpdf.layout;
+
+import org.fit.cssbox.svgpdf.render.SVGRenderer;
+import org.w3c.dom.Element;
+
+/**
+ * Class for expressing the CSS filter functions as native SVG filters. The browser then applies
+ * the effect and the original image may be embedded unchanged.
+ */
+public class FilterSVG {
+    private final Filter filter;
+    private final SVGRenderer svgRenderer;
+
+    public FilterSVG(Filter filter, SVGRenderer svgRenderer) {
+        this.filter = filter;
+        this.svgRenderer = svgRenderer;
+    }
+
+    /**
+     * Returns the key that describes the filter functions that have an effect and their parameters
+     * in the order of application, see {@link Filter#getKey()}.
+     *
+     * @return the filter key or an empty string when the filter has no effect
+     */
+    public String getKey() {
+        return filter.getKey();
+    }
+
+    /**
+     * Inserts the filter definition to the output unless the same filter has been already defined.
+     *
+     * @return the filter id or {@code null} when no supported filter function is used
+     */
+    public String insertFilter() {
+        final String key = getKey();
+        if (key.isEmpty())
+            return null;
+        final String id = svgRenderer.getDefinitions().getId("filter:" + key);
+        if (id != null)
+            return id;
+
+        final Element filterElem = svgRenderer.createElement("filter");
+        // CSS filter functions operate in the sRGB color space
+        filterElem.setAttribute("color-interpolation-filters", "sRGB");
+        for (String type : filter.filterType) {
+            if ("invert".equals(type) && filter.invert != 0) {
+                final String table = svgRenderer.fmt(filter.invert) + " " + svgRenderer.fmt(1 - filter.invert);
+                filterElem.appendChild(createTransfer(
+                        createFunc("feFuncR", "table", "tableValues", table),
+                        createFunc("feFuncG", "table", "tableValues", table),
+                        createFunc("feFuncB", "table", "tableValues", table)));
+            } else if ("bright".equals(type) && filter.bright != 1) {
+                final String slope = svgRenderer.fmt(filter.bright);
+                filterElem.appendChild(createTransfer(
+                        createFunc("feFuncR", "linear", "slope", slope),
+                        createFunc("feFuncG", "linear", "slope", slope),
+                        createFunc("feFuncB", "linear", "slope", slope)));
+            } else if ("opacity".equals(type) && filter.opacity != 1) {
+                filterElem.appendChild(createTransfer(
+                        createFunc("feFuncA", "table", "tableValues", "0 " + svgRenderer.fmt(filter.opacity))));
+            } else if ("grayscale".equals(type) && filter.grayscale > 0) {
+                final Element matrix = svgRenderer.createElement("feColorMatrix");
+                matrix.setAttribute("type", "matrix");
+                matrix.setAttribute("values", grayscaleMatrix(Math.min(1, filter.grayscale)));
+                filterElem.appendChild(matrix);
+            }
+        }
+        return svgRenderer.getDefinitions().add("filter:" + key, "filter", filterElem);
+    }
+
+    private Element createTransfer(Element... funcs) {
+        final Element transfer = svgRenderer.createElement("feComponentTransfer");
+        for (Element func : funcs)
+            transfer.appendChild(func);
+        return transfer;
+    }
+
+    private Element createFunc(String name, String type, String attr, String value) {
+        final Element func = svgRenderer.createElement(name);
+        func.setAttribute("type", type);
+        func.setAttribute(attr, value);
+        return func;
+    }
+
+    /**
+     * Formats the color matrix of the grayscale() function, see {@link Filter#grayscaleMatrix(float)}.
+     *
+     * @param amount - the grayscale amount (0..1)
+     * @return the matrix values
+     */
+    private String grayscaleMatrix(float amount) {
+        final float[] m = Filter.grayscaleMatrix(amount);
+        final StringBuilder values = new StringBuilder(128);
+        for (int i = 0; i < m.length; i++) {
+            if (i > 0)
+                values.append(' ');
+            svgRenderer.getNumberFormat().append(values, m[i]);
+        }
+        return values.toString();
+    }
+
+}
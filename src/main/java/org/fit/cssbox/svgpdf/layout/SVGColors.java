@@ -0,0 +1,74 @@
+package org.fit.cssbox.svgpdf.layout;
+
+import cz.vutbr.web.csskit.Color;
+
+/**
+ * Conversion of colors to the SVG hexadecimal notation ({@code #rrggbb}).
+ * The strings are encoded directly from the packed RGB value and the recently used
+ * ones are kept in a small direct-mapped cache shared by all the renderers.
+ */
+public final class SVGColors {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Cache size, must be a power of two
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    private static final Entry[] cache = new Entry[CACHE_SIZE];
+
+    private SVGColors() {
+    }
+
+    /**
+     * Converts a color to the {@code #rrggbb} string. The alpha channel is ignored.
+     *
+     * @param color - the color
+     * @return color as String
+     */
+    public static String toHex(Color color) {
+        return toHex(color.getRed(), color.getGreen(), color.getBlue());
+    }
+
+    /**
+     * Converts the color components to the {@code #rrggbb} string.
+     *
+     * @param r - red component (0..255)
+     * @param g - green component (0..255)
+     * @param b - blue component (0..255)
+     * @return color as String
+     */
+    public static String toHex(int r, int g, int b) {
+        final int rgb = ((r & 0xff) << 16) | ((g & 0xff) << 8) | (b & 0xff);
+        final int slot = (rgb ^ (rgb >>> 10) ^ (rgb >>> 20)) & (CACHE_SIZE - 1);
+        // the entries are immutable, so a racy read returns either a complete entry or null
+        final Entry e = cache[slot];
+        if (e != null && e.rgb == rgb)
+            return e.hex;
+        final String hex = encode(rgb);
+        cache[slot] = new Entry(rgb, hex);
+        return hex;
+    }
+
+    private static String encode(int rgb) {
+        final char[] buf = new char[7];
+        buf[0] = '#';
+        for (int i = 6; i > 0; i--) {
+            buf[i] = HEX[rgb & 0xf];
+            rgb >>>= 4;
+        }
+        return new String(buf);
+    }
+
+    //================================================================================
+
+    private static final class Entry {
+        final int rgb;
+        final String hex;
+
+        Entry(int rgb, String hex) {
+            this.rgb = rgb;
+            this.hex = hex;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.fit.cssbox.svgpdf.layout;
+
+/**
+ * A fixed-precision number formatter used for the SVG attributes and path data.
+ * The numbers are rounded to the configured number of decimal places and the trailing
+ * zeros are omitted, so that e.g. {@code 12.0f} is written as {@code 12} and
+ * {@code 123.45679f} as {@code 123.457} (with the default precision).
+ * <p>
+ * The formatter appends the digits directly to a {@link StringBuilder}. It keeps an internal
+ * buffer for {@link #format(float)} so it is not thread-safe; use one instance per renderer.
+ */
+public class SVGNumberFormat {
+    /**
+     * The default number of decimal places
+     */
+    public static final int DEFAULT_PRECISION = 3;
+
+    /**
+     * The maximal supported number of decimal places
+     */
+    public static final int MAX_PRECISION = 9;
+
+    private static final long[] POW10 = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L,
+            10000000L, 100000000L, 1000000000L};
+
+    private final int precision;
+    private final long scale;
+    private final double limit;
+    private final StringBuilder buf;
+
+    public SVGNumberFormat() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a formatter with the given number of decimal places.
+     *
+     * @param precision the number of decimal places (0..{@value #MAX_PRECISION})
+     */
+    public SVGNumberFormat(int precision) {
+        if (precision < 0 || precision > MAX_PRECISION)
+            throw new IllegalArgumentException("Unsupported precision: " + precision);
+        this.precision = precision;
+        this.scale = POW10[precision];
+        this.limit = (double) Long.MAX_VALUE / scale;
+        this.buf = new StringBuilder(32);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Formats a number to a string.
+     *
+     * @param value the value to format
+     * @return the formatted value
+     */
+    public String format(float value) {
+        buf.setLength(0);
+        append(buf, value);
+        return buf.toString();
+    }
+
+    /**
+     * Formats a number to a string.
+     *
+     * @param value the value to format
+     * @return the formatted value
+     */
+    public String format(double value) {
+        buf.setLength(0);
+        append(buf, value);
+        return buf.toString();
+    }
+
+    /**
+     * Rounds a number to the configured number of decimal places, i.e. to the value
+     * that would be written to the output.
+     *
+     * @param value the value to round
+     * @return the rounded value
+     */
+    public double round(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= limit)
+            return value;
+        final double rounded = Math.round(Math.abs(value) * scale) / (double) scale;
+        return (value < 0) ? -rounded : rounded;
+    }
+
+    /**
+     * Appends a formatted number to a string builder.
+     *
+     * @param sb    the target string builder
+     * @param value the value to append
+     * @return the string builder
+     */
+    public StringBuilder append(StringBuilder sb, float value) {
+        return append(sb, (double) value);
+    }
+
+    /**
+     * Appends a formatted number to a string builder.
+     *
+     * @param sb    the target string builder
+     * @param value the value to append
+     * @return the string builder
+     */
+    public StringBuilder append(StringBuilder sb, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= limit) {
+            // out of the fixed-point range, use the standard representation
+            sb.append(value);
+            return sb;
+        }
+        final boolean negative = value < 0;
+        final long scaled = Math.round(Math.abs(value) * scale);
+        if (scaled == 0) {
+            sb.append('0');
+            return sb;
+        }
+        if (negative)
+            sb.append('-');
+        final long intPart = scaled / scale;
+        long fracPart = scaled % scale;
+        sb.append(intPart);
+        if (fracPart != 0) {
+            int digits = precision;
+            // strip the trailing zeros
+            while (fracPart % 10 == 0) {
+                fracPart /= 10;
+                digits--;
+            }
+            sb.append('.');
+            for (long p = POW10[digits - 1]; p > fracPart; p /= 10)
+                sb.append('0');
+            sb.append(fracPart);
+        }
+        return sb;
+    }
+
+}
@@ -0,0 +1,196 @@
+package org.fit.cssbox.svgpdf.layout;
+
+/**
+ * A builder of compact SVG path data. The absolute coordinates passed to the builder are
+ * written as relative commands, repeated command letters are omitted, consecutive collinear
+ * line segments are merged into a single one and the negative numbers are not separated
+ * by spaces. The relative offsets are computed from the rounded positions so that the rounding
+ * errors do not accumulate along the path.
+ * <p>
+ * The internal buffer is reused by {@link #reset()}; the builder is not thread-safe.
+ */
+public class SVGPathBuilder {
+    /**
+     * Relative tolerance for considering two line segments collinear
+     */
+    private static final double COLLINEAR_EPS = 1e-6;
+
+    private final SVGNumberFormat nf;
+    private final StringBuilder buf;
+
+    /**
+     * The last command written to the buffer or 0 for an empty path
+     */
+    private char lastCommand;
+
+    // current position (rounded) and the start of the current subpath
+    private double px, py;
+    private double sx, sy;
+
+    // a line segment that has not been written yet because it may be extended
+    private boolean pendingLine;
+    private double lx, ly;
+
+    public SVGPathBuilder() {
+        this(new SVGNumberFormat());
+    }
+
+    /**
+     * @param nf - the formatter used for the coordinates
+     */
+    public SVGPathBuilder(SVGNumberFormat nf) {
+        this.nf = nf;
+        this.buf = new StringBuilder(256);
+    }
+
+    /**
+     * Clears the builder for creating a new path.
+     *
+     * @return this builder
+     */
+    public SVGPathBuilder reset() {
+        buf.setLength(0);
+        lastCommand = 0;
+        px = py = sx = sy = 0;
+        pendingLine = false;
+        return this;
+    }
+
+    /**
+     * Starts a new subpath at the given point.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return this builder
+     */
+    public SVGPathBuilder moveTo(double x, double y) {
+        flushLine();
+        final double rx = nf.round(x);
+        final double ry = nf.round(y);
+        // the initial relative moveto is relative to the origin and the following
+        // coordinate pairs are treated as relative lineto commands
+        command('m');
+        appendNumber(rx - px);
+        appendNumber(ry - py);
+        px = sx = rx;
+        py = sy = ry;
+        return this;
+    }
+
+    /**
+     * Adds a line to the given point.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return this builder
+     */
+    public SVGPathBuilder lineTo(double x, double y) {
+        if (pendingLine) {
+            final double dx1 = lx - px, dy1 = ly - py;
+            final double dx2 = x - lx, dy2 = y - ly;
+            final double cross = dx1 * dy2 - dy1 * dx2;
+            final double dot = dx1 * dx2 + dy1 * dy2;
+            final double len = Math.sqrt((dx1 * dx1 + dy1 * dy1) * (dx2 * dx2 + dy2 * dy2));
+            if (dot >= 0 && Math.abs(cross) <= COLLINEAR_EPS * len) {
+                // the same direction, extend the pending segment
+                lx = x;
+                ly = y;
+                return this;
+            }
+            flushLine();
+        }
+        pendingLine = true;
+        lx = x;
+        ly = y;
+        return this;
+    }
+
+    /**
+     * Adds an elliptical arc to the given point.
+     *
+     * @param rx        - x radius
+     * @param ry        - y radius
+     * @param rotation  - x axis rotation in degrees
+     * @param largeArc  - the large arc flag
+     * @param sweep     - the sweep flag
+     * @param x         - x coordinate of the end point
+     * @param y         - y coordinate of the end point
+     * @return this builder
+     */
+    public SVGPathBuilder arcTo(double rx, double ry, double rotation, boolean largeArc, boolean sweep, double x, double y) {
+        flushLine();
+        final double ex = nf.round(x);
+        final double ey = nf.round(y);
+        command('a');
+        appendNumber(rx);
+        appendNumber(ry);
+        appendNumber(rotation);
+        appendNumber(largeArc ? 1 : 0);
+        appendNumber(sweep ? 1 : 0);
+        appendNumber(ex - px);
+        appendNumber(ey - py);
+        px = ex;
+        py = ey;
+        return this;
+    }
+
+    /**
+     * Closes the current subpath.
+     *
+     * @return this builder
+     */
+    public SVGPathBuilder close() {
+        flushLine();
+        buf.append('z');
+        lastCommand = 'z';
+        px = sx;
+        py = sy;
+        return this;
+    }
+
+    /**
+     * Returns the path data.
+     *
+     * @return the path data
+     */
+    @Override
+    public String toString() {
+        flushLine();
+        return buf.toString();
+    }
+
+    //================================================================================
+
+    private void flushLine() {
+        if (pendingLine) {
+            pendingLine = false;
+            final double ex = nf.round(lx);
+            final double ey = nf.round(ly);
+            if (ex == px && ey == py)
+                return; // zero length
+            command('l');
+            appendNumber(ex - px);
+            appendNumber(ey - py);
+            px = ex;
+            py = ey;
+        }
+    }
+
+    /**
+     * Writes a command letter unless it may be omitted.
+     */
+    private void command(char cmd) {
+        // the coordinates following a moveto are implicit lineto commands
+        if (cmd == 'm' || (cmd != lastCommand && !(cmd == 'l' && lastCommand == 'm')))
+            buf.append(cmd);
+        lastCommand = cmd;
+    }
+
+    private void appendNumber(double value) {
+        final int len = buf.length();
+        if (len > 0 && !Character.isLetter(buf.charAt(len - 1)) && nf.round(value) >= 0)
+            buf.append(' ');
+        nf.append(buf, value);
+    }
+
+}
@@ -1,15 +1,16 @@
 package org.fit.cssbox.svgpdf.layout;
 
-import cz.vutbr.web.css.CSSProperty;
 import cz.vutbr.web.csskit.Color;
 import org.fit.cssbox.layout.TextBox;
-import org.fit.cssbox.layout.VisualContext;
 
 /**
  * Class for representing text.
  *
  * @author Tomas Chocholaty
+ * @deprecated the renderers use the shared {@link TextStyle} instances; this class only exposes
+ * the values of a {@link TextStyle} in the original form.
  */
+@Deprecated
 public abstract class TextClass {
     public float fontSize;
     public String boldStyle;
@@ -18,14 +19,25 @@ public abstract class TextClass {
     public Color color;
     public float letterSpacing;
 
+    // the style the values are taken from
+    protected final TextStyle style;
+
 
     public TextClass(TextBox text) {
-        VisualContext ctx = text.getVisualContext();
-        fontSize = ctx.getFontSize();
-        boldStyle = ctx.getFontInfo().isBold() ? "bold" : "normal";
-        italicStyle = ctx.getFontInfo().isItalic() ? "italic" : "normal";
-        isUnderline = text.getEfficientTextDecoration().contains(CSSProperty.TextDecoration.UNDERLINE) ? "underline" : "normal";
-        color = ctx.getColor();
-        letterSpacing = ctx.getLetterSpacing();
+        this(TextStyle.create(text, null));
+    }
+
+    protected TextClass(TextStyle style) {
+        this.style = style;
+        fontSize = style.getFontSize();
+        boldStyle = style.isBold() ? "bold" : "normal";
+        italicStyle = style.isItalic() ? "italic" : "normal";
+        isUnderline = style.isUnderline() ? "underline" : "normal";
+        color = style.getColor();
+        letterSpacing = style.getLetterSpacing();
+    }
+
+    public TextStyle getTextStyle() {
+        return style;
     }
 }
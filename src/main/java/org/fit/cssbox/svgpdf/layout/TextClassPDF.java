@@ -9,12 +9,18 @@ import org.fit.cssbox.layout.TextBox;
  * Class for representing text for PDF version.
  *
  * @author Tomas Chocholaty
+ * @deprecated use {@link TextStyle} and the text width measured by the layout
  */
+@Deprecated
 public class TextClassPDF extends TextClass {
     public PDFont font;
 
+    // the text width measured during the layout
+    public float width;
+
     public TextClassPDF(TextBox text, PDFont font) {
-        super(text);
+        super(TextStyle.create(text, font));
         this.font = font;
+        this.width = text.getContentWidth();
     }
 }
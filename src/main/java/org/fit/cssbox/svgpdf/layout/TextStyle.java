@@ -0,0 +1,199 @@
+package org.fit.cssbox.svgpdf.layout;
+
+import cz.vutbr.web.css.CSSProperty;
+import cz.vutbr.web.csskit.Color;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.fit.cssbox.layout.FontInfo;
+import org.fit.cssbox.layout.TextBox;
+import org.fit.cssbox.layout.VisualContext;
+
+/**
+ * An immutable description of the text style shared by all the text boxes with the same font,
+ * size, weight, style, decoration, color and letter spacing. The instances are interned by
+ * {@link org.fit.cssbox.svgpdf.render.TextStyleCache} so that the derived values (e.g. the SVG
+ * style string) are computed once for each distinct style.
+ */
+public final class TextStyle {
+    private final String fontFamily;
+    private final PDFont font;
+    private final float fontSize;
+    private final boolean bold;
+    private final boolean italic;
+    private final int decoration;
+    private final Color color;
+    private final float letterSpacing;
+    private final int hash;
+
+    // the SVG style string created on demand
+    private String svgStyle;
+
+    /**
+     * Creates a text style.
+     *
+     * @param fontFamily    - font family name
+     * @param font          - the PDF font or {@code null} when not used
+     * @param fontSize      - font size
+     * @param bold          - {@code true} for the bold text
+     * @param italic        - {@code true} for the italic text
+     * @param decoration    - the text decorations, see {@link #decorationMask(Iterable)}
+     * @param color         - text color
+     * @param letterSpacing - letter spacing
+     */
+    public TextStyle(String fontFamily, PDFont font, float fontSize, boolean bold, boolean italic, int decoration,
+                     Color color, float letterSpacing) {
+        this.fontFamily = fontFamily;
+        this.font = font;
+        this.fontSize = fontSize;
+        this.bold = bold;
+        this.italic = italic;
+        this.decoration = decoration;
+        this.color = color;
+        this.letterSpacing = letterSpacing;
+
+        int result = fontFamily == null ? 0 : fontFamily.hashCode();
+        result = 31 * result + System.identityHashCode(font);
+        result = 31 * result + Float.floatToIntBits(fontSize);
+        result = 31 * result + (bold ? 1231 : 1237);
+        result = 31 * result + (italic ? 1231 : 1237);
+        result = 31 * result + decoration;
+        result = 31 * result + (color == null ? 0 : (color.getAlpha() << 24 | color.getRed() << 16 | color.getGreen() << 8 | color.getBlue()));
+        result = 31 * result + Float.floatToIntBits(letterSpacing);
+        this.hash = result;
+    }
+
+    /**
+     * Creates the style of a text drawn using the given visual context.
+     *
+     * @param ctx        - the visual context
+     * @param decoration - the text decorations, see {@link #decorationMask(Iterable)}
+     * @param font       - the PDF font or {@code null} when not used
+     * @return the new text style
+     */
+    public static TextStyle create(VisualContext ctx, int decoration, PDFont font) {
+        final FontInfo fontInfo = ctx.getFontInfo();
+        return new TextStyle(fontInfo.getFamily(), font, ctx.getFontSize(), fontInfo.isBold(), fontInfo.isItalic(),
+                decoration, ctx.getColor(), ctx.getLetterSpacing());
+    }
+
+    /**
+     * Creates the style of a text box.
+     *
+     * @param text - the text box
+     * @param font - the PDF font or {@code null} when not used
+     * @return the new text style
+     */
+    public static TextStyle create(TextBox text, PDFont font) {
+        return create(text.getVisualContext(), decorationMask(text.getEfficientTextDecoration()), font);
+    }
+
+    /**
+     * Encodes a set of text decorations as a bit mask.
+     *
+     * @param decorations - the decorations
+     * @return the bit mask indexed by the decoration ordinal values
+     */
+    public static int decorationMask(Iterable<CSSProperty.TextDecoration> decorations) {
+        int mask = 0;
+        for (CSSProperty.TextDecoration dec : decorations)
+            mask |= 1 << dec.ordinal();
+        return mask;
+    }
+
+    public String getFontFamily() {
+        return fontFamily;
+    }
+
+    public PDFont getFont() {
+        return font;
+    }
+
+    public float getFontSize() {
+        return fontSize;
+    }
+
+    public boolean isBold() {
+        return bold;
+    }
+
+    public boolean isItalic() {
+        return italic;
+    }
+
+    public boolean isUnderline() {
+        return (decoration & (1 << CSSProperty.TextDecoration.UNDERLINE.ordinal())) != 0;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public float getLetterSpacing() {
+        return letterSpacing;
+    }
+
+    /**
+     * Returns the string representing the style of the text for SVG.
+     *
+     * @return the style string
+     */
+    public String getSVGStyle() {
+        if (svgStyle == null) {
+            final StringBuilder style = new StringBuilder(160);
+            style.append("font-size:").append(fontSize).append("pt;")
+                    .append("font-weight:").append(bold ? "bold" : "normal").append(';')
+                    .append("font-style:").append(italic ? "italic" : "normal").append(';')
+                    .append("text-decoration:").append(isUnderline() ? "underline" : "normal").append(';')
+                    .append("font-family:").append(fontFamily).append(';')
+                    .append("fill:").append(SVGColors.toHex(color)).append(';')
+                    .append("stroke:none");
+            if (letterSpacing > 0.0001) {
+                style.append(";letter-spacing:").append(letterSpacing).append("px");
+            }
+            style.append(";text-decoration:");
+            if (decoration == 0) {
+                style.append("none");
+            } else {
+                boolean first = true;
+                for (CSSProperty.TextDecoration dec : CSSProperty.TextDecoration.values()) {
+                    if ((decoration & (1 << dec.ordinal())) != 0) {
+                        if (!first)
+                            style.append(' ');
+                        style.append(dec.toString());
+                        first = false;
+                    }
+                }
+            }
+            svgStyle = style.toString();
+        }
+        return svgStyle;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        final TextStyle other = (TextStyle) obj;
+        if (hash != other.hash) return false;
+        if (font != other.font) return false;
+        if (fontFamily == null) {
+            if (other.fontFamily != null) return false;
+        } else if (!fontFamily.equals(other.fontFamily)) return false;
+        if (Float.compare(fontSize, other.fontSize) != 0) return false;
+        if (bold != other.bold || italic != other.italic) return false;
+        if (decoration != other.decoration) return false;
+        if (Float.compare(letterSpacing, other.letterSpacing) != 0) return false;
+        if (color == null) {
+            return other.color == null;
+        } else {
+            return other.color != null && color.getRed() == other.color.getRed()
+                    && color.getGreen() == other.color.getGreen() && color.getBlue() == other.color.getBlue()
+                    && color.getAlpha() == other.color.getAlpha();
+        }
+    }
+
+}
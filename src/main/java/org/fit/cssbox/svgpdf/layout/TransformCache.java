@@ -0,0 +1,56 @@
+package org.fit.cssbox.svgpdf.layout;
+
+import org.fit.cssbox.layout.ElementBox;
+
+import java.awt.geom.AffineTransform;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the decoded CSS transforms of the individual elements. The transform of an element
+ * is decoded only once during the rendering regardless of the number of pages and the number
+ * of places where it is used. A cache should be used by a single renderer only.
+ */
+public class TransformCache {
+    private final Map<ElementBox, Entry> entries;
+
+    public TransformCache() {
+        entries = new IdentityHashMap<>();
+    }
+
+    /**
+     * Returns the cache entry for the element, a new empty entry is created when the element
+     * is not present in the cache.
+     *
+     * @param elem - the element
+     * @return the cache entry
+     */
+    Entry getEntry(ElementBox elem) {
+        Entry entry = entries.get(elem);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(elem, entry);
+        }
+        return entry;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    //================================================================================
+
+    /**
+     * The decoded transform values of a single element
+     */
+    static class Entry {
+        // the transform origin relative to the border bounds
+        float[] origin;
+        // the PDF transformation matrix or null when no transformation is applied
+        AffineTransform pdfTransform;
+        boolean pdfDecoded;
+        // the SVG transform attribute value
+        String svgTransform;
+    }
+
+}
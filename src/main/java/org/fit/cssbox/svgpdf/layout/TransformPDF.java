@@ -20,9 +20,20 @@ public class TransformPDF {
 
     private float resCoef;
 
+    private final TransformCache cache;
+
     public TransformPDF(float resCoef) {
+        this(resCoef, null);
+    }
+
+    /**
+     * @param resCoef - the resolution ratio between the CSSBox units and the PDFBox units
+     * @param cache   - the cache of the decoded transforms or {@code null} for decoding the transforms on each use
+     */
+    public TransformPDF(float resCoef, TransformCache cache) {
         super();
         this.resCoef = resCoef;
+        this.cache = cache;
     }
 
     AffineTransform affineTransform;
@@ -65,17 +76,11 @@ public class TransformPDF {
      * @param node       - node corresponding with actual element
      * @param actualPage - current page
      * @param pageHeight - height of page
-     * @return transform
+     * @return transform; it may be shared with other uses of the same element and it must not be modified
      */
     public AffineTransform insertTransformPDF(ElementBox elem, Node node, int actualPage, float pageHeight) {
         if (elem.isBlock() || elem.isReplaced()) {
 
-            dec = new CSSDecoder(elem.getVisualContext());
-            bounds = elem.getAbsoluteBorderBounds();
-            float oxoy[] = getOxOy(elem);
-            float ox = oxoy[0];
-            float oy = oxoy[1];
-
             float pageStart = actualPage * pageHeight;
             float pageEnd = (actualPage + 1) * pageHeight;
 
@@ -84,86 +89,103 @@ public class TransformPDF {
 
             // checks if the element if completely out of page
             if ((startOfTheElement < pageEnd && startOfTheElement >= pageStart) || (endOfTheElement <= pageEnd && endOfTheElement > pageStart) || (startOfTheElement <= pageStart && endOfTheElement >= pageEnd)) {
-
-                // compute the transformation matrix
-                CSSProperty.Transform trans = elem.getStyle().getProperty("transform");
-
-                if (trans == CSSProperty.Transform.list_values) {
-                    boolean transformed = false;
-                    AffineTransform ret = new AffineTransform();
-                    TermList values = elem.getStyle().getValue(TermList.class, "transform");
-                    for (Term<?> term : values) {
-                        if (term instanceof TermFunction.Rotate) {
-                            final double theta = dec.getAngle(((TermFunction.Rotate) term).getAngle());
-                            ret.rotate(-theta);
-                            transformed = true;
-                        } else if (term instanceof TermFunction.Scale) {
-                            float sx = ((TermFunction.Scale) term).getScaleX();
-                            float sy = ((TermFunction.Scale) term).getScaleY();
-                            ret.scale(sx, sy);
-                            transformed = true;
-                        } else if (term instanceof TermFunction.ScaleX) {
-                            float sx = ((TermFunction.ScaleX) term).getScale();
-                            ret.scale(sx, 1.0f);
-                            transformed = true;
-                        } else if (term instanceof TermFunction.ScaleY) {
-                            float sy = ((TermFunction.ScaleY) term).getScale();
-                            ret.scale(1.0f, sy);
-                            transformed = true;
-                        } else if (term instanceof TermFunction.Skew) {
-                            double anx = dec.getAngle(((TermFunction.Skew) term).getSkewX());
-                            double any = dec.getAngle(((TermFunction.Skew) term).getSkewY());
-                            ret.shear(Math.tan(-anx), Math.tan(-any));
-                            transformed = true;
-                        } else if (term instanceof TermFunction.SkewX) {
-                            double anx = dec.getAngle(((TermFunction.SkewX) term).getSkew());
-                            ret.shear(Math.tan(-anx), 0.0);
-                            transformed = true;
-                        } else if (term instanceof TermFunction.SkewY) {
-                            double any = dec.getAngle(((TermFunction.SkewY) term).getSkew());
-                            ret.shear(0.0, -any);
-                            transformed = true;
-                        } else if (term instanceof TermFunction.Matrix) {
-                            float[] vals = new float[6];
-                            vals = ((TermFunction.Matrix) term).getValues();
-                            vals[1] = -vals[1]; // must be inverted because of
-                            // coordinate system in PDF
-                            vals[2] = -vals[2];
-                            vals[5] = -vals[5];
-                            ret.concatenate(new AffineTransform(vals));
-                            transformed = true;
-                        } else if (term instanceof TermFunction.Translate) {
-                            float tx = dec.getLength(((TermFunction.Translate) term).getTranslateX(), false, 0, 0,
-                                    bounds.width);
-                            float ty = resCoef * dec.getLength(((TermFunction.Translate) term).getTranslateY(), false, 0, 0,
-                                    bounds.height);
-                            ret.translate(tx * resCoef, -ty * resCoef); // - because of the different coordinate system in PDF
-                            transformed = true;
-                        } else if (term instanceof TermFunction.TranslateX) {
-                            float tx = dec.getLength(((TermFunction.TranslateX) term).getTranslate(), false, 0, 0,
-                                    bounds.width);
-                            ret.translate(tx * resCoef, 0.0);
-                            transformed = true;
-                        } else if (term instanceof TermFunction.TranslateY) {
-                            float ty = dec.getLength(((TermFunction.TranslateY) term).getTranslate(), false, 0, 0,
-                                    bounds.height);
-                            ret.translate(0.0, -ty * resCoef);
-                            transformed = true;
-                        }
-                    }
-
-                    if (transformed) {
-                        return ret;
-                    } else
-                        return null; // no transformation applied
-                } else
-                    return null; // no transformation declared
+                if (cache == null)
+                    return decodeTransform(elem);
+                final TransformCache.Entry entry = cache.getEntry(elem);
+                if (!entry.pdfDecoded) {
+                    entry.pdfTransform = decodeTransform(elem);
+                    entry.pdfDecoded = true;
+                }
+                return entry.pdfTransform;
             } else
                 return null; // not applicable for this element type
         }
         return null;
     }
 
+    /**
+     * Computes the transformation matrix from the element style.
+     *
+     * @param elem - instance of ElementBox
+     * @return transform or {@code null} when no transformation is applied
+     */
+    private AffineTransform decodeTransform(ElementBox elem) {
+        CSSProperty.Transform trans = elem.getStyle().getProperty("transform");
+
+        if (trans == CSSProperty.Transform.list_values) {
+            dec = new CSSDecoder(elem.getVisualContext());
+            bounds = elem.getAbsoluteBorderBounds();
+            boolean transformed = false;
+            AffineTransform ret = new AffineTransform();
+            TermList values = elem.getStyle().getValue(TermList.class, "transform");
+            for (Term<?> term : values) {
+                if (term instanceof TermFunction.Rotate) {
+                    final double theta = dec.getAngle(((TermFunction.Rotate) term).getAngle());
+                    ret.rotate(-theta);
+                    transformed = true;
+                } else if (term instanceof TermFunction.Scale) {
+                    float sx = ((TermFunction.Scale) term).getScaleX();
+                    float sy = ((TermFunction.Scale) term).getScaleY();
+                    ret.scale(sx, sy);
+                    transformed = true;
+                } else if (term instanceof TermFunction.ScaleX) {
+                    float sx = ((TermFunction.ScaleX) term).getScale();
+                    ret.scale(sx, 1.0f);
+                    transformed = true;
+                } else if (term instanceof TermFunction.ScaleY) {
+                    float sy = ((TermFunction.ScaleY) term).getScale();
+                    ret.scale(1.0f, sy);
+                    transformed = true;
+                } else if (term instanceof TermFunction.Skew) {
+                    double anx = dec.getAngle(((TermFunction.Skew) term).getSkewX());
+                    double any = dec.getAngle(((TermFunction.Skew) term).getSkewY());
+                    ret.shear(Math.tan(-anx), Math.tan(-any));
+                    transformed = true;
+                } else if (term instanceof TermFunction.SkewX) {
+                    double anx = dec.getAngle(((TermFunction.SkewX) term).getSkew());
+                    ret.shear(Math.tan(-anx), 0.0);
+                    transformed = true;
+                } else if (term instanceof TermFunction.SkewY) {
+                    double any = dec.getAngle(((TermFunction.SkewY) term).getSkew());
+                    ret.shear(0.0, -any);
+                    transformed = true;
+                } else if (term instanceof TermFunction.Matrix) {
+                    // the values are copied so that the term is not modified
+                    float[] vals = ((TermFunction.Matrix) term).getValues().clone();
+                    vals[1] = -vals[1]; // must be inverted because of
+                    // coordinate system in PDF
+                    vals[2] = -vals[2];
+                    vals[5] = -vals[5];
+                    ret.concatenate(new AffineTransform(vals));
+                    transformed = true;
+                } else if (term instanceof TermFunction.Translate) {
+                    float tx = dec.getLength(((TermFunction.Translate) term).getTranslateX(), false, 0, 0,
+                            bounds.width);
+                    float ty = resCoef * dec.getLength(((TermFunction.Translate) term).getTranslateY(), false, 0, 0,
+                            bounds.height);
+                    ret.translate(tx * resCoef, -ty * resCoef); // - because of the different coordinate system in PDF
+                    transformed = true;
+                } else if (term instanceof TermFunction.TranslateX) {
+                    float tx = dec.getLength(((TermFunction.TranslateX) term).getTranslate(), false, 0, 0,
+                            bounds.width);
+                    ret.translate(tx * resCoef, 0.0);
+                    transformed = true;
+                } else if (term instanceof TermFunction.TranslateY) {
+                    float ty = dec.getLength(((TermFunction.TranslateY) term).getTranslate(), false, 0, 0,
+                            bounds.height);
+                    ret.translate(0.0, -ty * resCoef);
+                    transformed = true;
+                }
+            }
+
+            if (transformed) {
+                return ret;
+            } else
+                return null; // no transformation applied
+        } else
+            return null; // no transformation declared
+    }
+
 
     /**
      * Set transformation for current element
@@ -208,6 +230,16 @@ public class TransformPDF {
      * @return field with point coordinates
      */
     public float[] getOxOy(ElementBox elem) {
+        if (cache != null) {
+            final TransformCache.Entry entry = cache.getEntry(elem);
+            if (entry.origin == null)
+                entry.origin = decodeOxOy(elem);
+            return entry.origin.clone();
+        }
+        return decodeOxOy(elem);
+    }
+
+    private float[] decodeOxOy(ElementBox elem) {
         CSSDecoder dec = new CSSDecoder(elem.getVisualContext());
         Rectangle bounds = elem.getAbsoluteBorderBounds();
         // decode the origin
@@ -13,8 +13,29 @@ import org.fit.cssbox.layout.Rectangle;
  */
 public class TransformSVG {
 
+    private final SVGNumberFormat numberFormat;
+
+    private final TransformCache cache;
+
     public TransformSVG() {
+        this(new SVGNumberFormat());
+    }
+
+    /**
+     * @param numberFormat - formatter used for the numeric values of the transformation
+     */
+    public TransformSVG(SVGNumberFormat numberFormat) {
+        this(numberFormat, null);
+    }
+
+    /**
+     * @param numberFormat - formatter used for the numeric values of the transformation
+     * @param cache        - the cache of the decoded transforms or {@code null} for decoding the transforms on each use
+     */
+    public TransformSVG(SVGNumberFormat numberFormat, TransformCache cache) {
         super();
+        this.numberFormat = numberFormat;
+        this.cache = cache;
     }
 
     private CSSDecoder dec;
@@ -28,6 +49,21 @@ public class TransformSVG {
      * @return transform
      */
     public String insertTransformSVG(ElementBox elem) {
+        if (cache == null)
+            return decodeTransform(elem);
+        final TransformCache.Entry entry = cache.getEntry(elem);
+        if (entry.svgTransform == null)
+            entry.svgTransform = decodeTransform(elem);
+        return entry.svgTransform;
+    }
+
+    /**
+     * Creates the SVG transform attribute value from the element style.
+     *
+     * @param elem - instance of ElementBox
+     * @return transform or an empty string when no transformation is declared
+     */
+    private String decodeTransform(ElementBox elem) {
 
         if (elem.isBlock() || elem.isReplaced()) {
             dec = new CSSDecoder(elem.getVisualContext());
@@ -47,7 +83,7 @@ public class TransformSVG {
             oy += bounds.y;
             CSSProperty.Transform trans = elem.getStyle().getProperty("transform");
             if (trans == CSSProperty.Transform.list_values) {
-                String transformStr = "translate(" + ox + " " + oy + ") ";
+                String transformStr = "translate(" + fmt(ox) + " " + fmt(oy) + ") ";
                 TermList values = elem.getStyle().getValue(TermList.class, "transform");
                 boolean testRotate = false;
                 for (Term<?> term : values) {
@@ -82,7 +118,7 @@ public class TransformSVG {
 
                     transformStr += " ";
                 }
-                transformStr += " translate( -" + ox + " -" + oy + ")";
+                transformStr += " translate( " + fmt(-ox) + " " + fmt(-oy) + ")";
                 return transformStr;
             }
         }
@@ -116,7 +152,7 @@ public class TransformSVG {
             }
             if (typesOk) {
             }
-            return "matrix( " + vals[0] + " " + vals[1] + " " + vals[2] + " " + vals[3] + " " + vals[4] + " " + vals[5]
+            return "matrix( " + fmt(vals[0]) + " " + fmt(vals[1]) + " " + fmt(vals[2]) + " " + fmt(vals[3]) + " " + fmt(vals[4]) + " " + fmt(vals[5])
                     + " ) ";
         }
         return "";
@@ -131,7 +167,7 @@ public class TransformSVG {
     private String getSkewX(TermFunction func) {
         if (func.size() == 1 && func.get(0) instanceof TermAngle) {
             TermAngle t = (TermAngle) func.get(0);
-            return "skewX( " + t.getValue() + " ) ";
+            return "skewX( " + fmt(t.getValue()) + " ) ";
         }
         return "";
     }
@@ -145,7 +181,7 @@ public class TransformSVG {
     private String getSkewY(TermFunction func) {
         if (func.size() == 1 && func.get(0) instanceof TermAngle) {
             TermAngle t = (TermAngle) func.get(0);
-            return "skewY( " + t.getValue() + " ) ";
+            return "skewY( " + fmt(t.getValue()) + " ) ";
         }
         return "";
     }
@@ -159,13 +195,13 @@ public class TransformSVG {
     private String getSkew(TermFunction func) {
         if (func.size() == 1 && func.get(0) instanceof TermAngle) {
             TermAngle t = (TermAngle) func.get(0);
-            return "skewX( " + t.getValue() + " ) ";
+            return "skewX( " + fmt(t.getValue()) + " ) ";
 
         } else if (func.size() == 3 && func.get(0) instanceof TermAngle && func.get(2) instanceof TermAngle) {
             TermAngle tx = (TermAngle) func.get(0);
             TermAngle ty = (TermAngle) func.get(2);
-            return "matrix( " + 1 + " " + Math.tan(Math.toRadians(tx.getValue())) + " "
-                    + Math.tan(Math.toRadians(ty.getValue())) + " " + 1 + " " + 0 + " " + 0 + " ) ";
+            return "matrix( 1 " + fmt(Math.tan(Math.toRadians(tx.getValue()))) + " "
+                    + fmt(Math.tan(Math.toRadians(ty.getValue()))) + " 1 0 0 ) ";
         }
         return "";
     }
@@ -179,7 +215,7 @@ public class TransformSVG {
     private String getScaleX(TermFunction func) {
         if (func.size() == 1 && isNumber(func.get(0))) {
             double sx = getNumber(func.get(0));
-            return "scale( " + sx + ", 1 ) ";
+            return "scale( " + fmt(sx) + ", 1 ) ";
         }
         return "";
     }
@@ -193,7 +229,7 @@ public class TransformSVG {
     private String getScaleY(TermFunction func) {
         if (func.size() == 1 && isNumber(func.get(0))) {
             double sy = getNumber(func.get(0));
-            return "scale( 1 " + sy + " ) ";
+            return "scale( 1 " + fmt(sy) + " ) ";
         }
         return "";
     }
@@ -207,11 +243,11 @@ public class TransformSVG {
     private String getScale(TermFunction func) {
         if (func.size() == 1 && isNumber(func.get(0))) {
             double sx = getNumber(func.get(0));
-            return "scale( " + sx + " ) ";
+            return "scale( " + fmt(sx) + " ) ";
         } else if (func.size() == 3 && isNumber(func.get(0)) && isNumber(func.get(2))) {
             double sx = getNumber(func.get(0));
             double sy = getNumber(func.get(2));
-            return "scale( " + sx + " " + sy + " ) ";
+            return "scale( " + fmt(sx) + " " + fmt(sy) + " ) ";
         }
         return "";
     }
@@ -225,7 +261,7 @@ public class TransformSVG {
     private String getTranslateX(TermFunction func) {
         if (func.size() == 1 && func.get(0) instanceof TermLengthOrPercent) {
             final float tx = dec.getLength((TermLengthOrPercent) func.get(0), false, 0, 0, bounds.width);
-            return "translate( " + tx + " ) ";
+            return "translate( " + fmt(tx) + " ) ";
         }
         return "";
     }
@@ -239,7 +275,7 @@ public class TransformSVG {
     private String getTranslateY(TermFunction func) {
         if (func.size() == 1 && func.get(0) instanceof TermLengthOrPercent) {
             final float ty = dec.getLength((TermLengthOrPercent) func.get(0), false, 0, 0, bounds.height);
-            return "translate( 0 " + ty + " ) ";
+            return "translate( 0 " + fmt(ty) + " ) ";
         }
         return "";
     }
@@ -254,12 +290,12 @@ public class TransformSVG {
         if (func.size() == 1 && func.get(0) instanceof TermLengthOrPercent) {
             final float tx = dec.getLength((TermLengthOrPercent) func.get(0), false, 0, 0, bounds.width);
             final float ty = 0;
-            return "translate( " + tx + " " + ty + " ) ";
+            return "translate( " + fmt(tx) + " " + fmt(ty) + " ) ";
         } else if (func.size() == 3 && func.get(0) instanceof TermLengthOrPercent
                 && func.get(2) instanceof TermLengthOrPercent) {
             final float tx = dec.getLength((TermLengthOrPercent) func.get(0), false, 0, 0, bounds.width);
             final float ty = dec.getLength((TermLengthOrPercent) func.get(2), false, 0, 0, bounds.height);
-            return "translate( " + tx + " " + ty + " ) ";
+            return "translate( " + fmt(tx) + " " + fmt(ty) + " ) ";
         }
         return "";
     }
@@ -273,11 +309,15 @@ public class TransformSVG {
     private String getRotate(TermFunction func) {
         if (func.size() == 1 && func.get(0) instanceof TermAngle) {
             TermAngle t = (TermAngle) func.get(0);
-            return "rotate( " + t.getValue() + " " + 0 + " " + 0 + " ) ";
+            return "rotate( " + fmt(t.getValue()) + " 0 0 ) ";
         }
         return "";
     }
 
+    private String fmt(double value) {
+        return numberFormat.format(value);
+    }
+
     private static boolean isNumber(Term<?> term) {
         return term instanceof TermNumber || term instanceof TermInteger;
     }
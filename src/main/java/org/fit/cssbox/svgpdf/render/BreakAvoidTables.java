@@ -12,7 +12,7 @@ import java.util.List;
 import java.util.Vector;
 
 /**
- * Class for create break table and avoid table for paging PDF.
+ * Class for create break table and avoid table for paging PDF (or any other {@link PagedOutput}).
  *
  * @author Tomas Chocholaty
  */
@@ -22,10 +22,22 @@ public class BreakAvoidTables {
     private Node rootNodeOfTree, recentNodeInTree, rootNodeOfList, recentNodeInList;
     private List<Node> nodesWithoutParent = new ArrayList<>(16);
 
-    PDFRenderer pdfRenderer;
+    private final PagedOutput output;
+    private final float documentHeight;
 
     public BreakAvoidTables(PDFRenderer pdfRenderer) {
-        this.pdfRenderer = pdfRenderer;
+        this(pdfRenderer.getPdf(), pdfRenderer.getRootHeight());
+    }
+
+    /**
+     * Creates the tables for a general paged output.
+     *
+     * @param output         - the output providing the page height
+     * @param documentHeight - the height of the rendered document before paging
+     */
+    public BreakAvoidTables(PagedOutput output, float documentHeight) {
+        this.output = output;
+        this.documentHeight = documentHeight;
     }
 
     public Node getRootNodeOfTree() {
@@ -371,7 +383,7 @@ public class BreakAvoidTables {
      * Deletes items in Avoid table that are higher than "biggerThan" of the
      * page height
      */
-    public void deleteAvoidsBiggerThan(float biggerThan, PDFOutput pdf) {
+    public void deleteAvoidsBiggerThan(float biggerThan, PagedOutput pdf) {
         for (int i = 0; i < avoidTable.size(); i++) {
             if (avoidTable.get(i)[1] - avoidTable.get(i)[0] > biggerThan * pdf.getPageHeight())
                 avoidTable.remove(i);
@@ -382,7 +394,7 @@ public class BreakAvoidTables {
     /**
      * Merges avoid interval that are overlapping
      */
-    public void mergeAvoids(float biggerThan, PDFOutput pdf) {
+    public void mergeAvoids(float biggerThan, PagedOutput pdf) {
         // goes through table
         for (int i = 1; i < avoidTable.size(); i++) {
             // tests if intervals in records are overlapping
@@ -630,8 +642,8 @@ public class BreakAvoidTables {
      *
      * @param line1 - line for presumed page break
      */
-    private void makeBreakAt(float line1, PDFOutput pdf) {
-//        if (line1 > pdfRenderer.getRootHeight() || line1 < 0)
+    private void makeBreakAt(float line1, PagedOutput pdf) {
+//        if (line1 > documentHeight || line1 < 0)
 //            return;
 
         float spaceBetweenLines = 0;
@@ -764,12 +776,12 @@ public class BreakAvoidTables {
         float pageSize1 = breakTable.get(0)[0];
         float pageSize2 = breakTable.get(0)[2];
         while (pageSize1 > 0.0f) {
-            pageSize1 -= pdfRenderer.getPdf().getPageHeight();
+            pageSize1 -= output.getPageHeight();
             pages1++;
         }
 
         while (pageSize2 > 0.0f) {
-            pageSize2 -= pdfRenderer.getPdf().getPageHeight();
+            pageSize2 -= output.getPageHeight();
             pages2++;
         }
 
@@ -785,9 +797,9 @@ public class BreakAvoidTables {
      * breakTable, avoidTable and the ends determined by the size of document
      * page
      */
-    public void makePaging(PDFOutput pdf) {
+    public void makePaging(PagedOutput pdf) {
         float pageEnd = pdf.getPageHeight();
-        while (breakTable.size() > 0 || pageEnd < pdfRenderer.getRootHeight()) {
+        while (breakTable.size() > 0 || pageEnd < documentHeight) {
             if (breakTable.size() == 0 || pageEnd < breakTable.get(0)[0]) {
                 boolean nalezeno = false;
                 for (int i = 0; i < avoidTable.size(); i++) {
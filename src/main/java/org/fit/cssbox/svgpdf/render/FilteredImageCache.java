@@ -0,0 +1,118 @@
+package org.fit.cssbox.svgpdf.render;
+
+import org.fit.cssbox.svgpdf.layout.Filter;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of filtered images that prevents applying the same CSS filter to the same image
+ * repeatedly, e.g. for each page an image intersects or for each occurrence of an icon.
+ * The images are identified by the source image instance and the normalized filter parameters.
+ * The least recently used images are evicted when the total size of the cached images exceeds
+ * the memory budget.
+ */
+public class FilteredImageCache {
+    /**
+     * The default memory budget in bytes
+     */
+    public static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    private final long budget;
+    private final LinkedHashMap<CacheItem, BufferedImage> cache;
+    private long size;
+
+    public FilteredImageCache() {
+        this(DEFAULT_BUDGET);
+    }
+
+    /**
+     * @param budget - the maximal total size of the cached images in bytes
+     */
+    public FilteredImageCache(long budget) {
+        this.budget = budget;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the source image filtered by the given filter. The filtered image is created when
+     * it is not present in the cache. The returned image must not be modified.
+     *
+     * @param img    - the source image
+     * @param filter - the filter to apply
+     * @return the filtered image or the source image when the filter has no effect
+     */
+    public synchronized BufferedImage getFilteredImage(BufferedImage img, Filter filter) {
+        final String key = filter.getKey();
+        if (key.isEmpty())
+            return img;
+        final CacheItem item = new CacheItem(img, key);
+        BufferedImage result = cache.get(item);
+        if (result == null) {
+            result = filter.filterImg(img);
+            final long bytes = getSize(result);
+            if (bytes <= budget) {
+                cache.put(item, result);
+                size += bytes;
+                evict();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total size of the cached images.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        size = 0;
+    }
+
+    //================================================================================
+
+    private void evict() {
+        final Iterator<Map.Entry<CacheItem, BufferedImage>> it = cache.entrySet().iterator();
+        while (size > budget && it.hasNext()) {
+            size -= getSize(it.next().getValue());
+            it.remove();
+        }
+    }
+
+    private static long getSize(BufferedImage img) {
+        // the filtered images are always ARGB
+        return 4L * img.getWidth() * img.getHeight();
+    }
+
+    private static class CacheItem {
+        private final BufferedImage source;
+        private final String filter;
+
+        protected CacheItem(BufferedImage source, String filter) {
+            this.source = source;
+            this.filter = filter;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(source) + filter.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            CacheItem other = (CacheItem) obj;
+            return source == other.source && filter.equals(other.filter);
+        }
+    }
+
+}
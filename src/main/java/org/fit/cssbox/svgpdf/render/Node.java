@@ -23,6 +23,7 @@ public class Node {
     private float plusHeight, plusOffset;
 
     private int parentIDOfNoninsertedNode;
+    private final int styleFlags;
 
     /**
      * Constructor
@@ -37,12 +38,34 @@ public class Node {
         this.plusHeight = 0;
         this.plusOffset = 0;
         this.parentIDOfNoninsertedNode = -1;
+        if (elem != null)
+            this.styleFlags = StyleFlags.compute(elem);
+        else if (box instanceof ElementBox)
+            this.styleFlags = StyleFlags.compute((ElementBox) box);
+        else if (item != null)
+            this.styleFlags = StyleFlags.compute(item);
+        else
+            this.styleFlags = 0;
     }
 
     /////////////////////////////////////////////////////////////////////
     // Node and data structure management functions
     /////////////////////////////////////////////////////////////////////
 
+    /**
+     * Returns the style flags of the stored element, see {@link StyleFlags}
+     */
+    public int getStyleFlags() {
+        return this.styleFlags;
+    }
+
+    /**
+     * Checks whether any of the given style flags is set for the stored element
+     */
+    public boolean hasStyleFlag(int flags) {
+        return (this.styleFlags & flags) != 0;
+    }
+
     /**
      * Returns the parent ID
      */
@@ -42,7 +42,6 @@ import org.fit.cssbox.layout.TextBox;
 import org.fit.cssbox.svgpdf.layout.Border;
 import org.fit.cssbox.svgpdf.layout.BorderPDF;
 import org.fit.cssbox.svgpdf.layout.CornerRadius;
-import org.fit.cssbox.svgpdf.layout.DPoint;
 
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
@@ -50,6 +49,11 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * A representation of the output PDF document.
@@ -58,7 +62,7 @@ import java.net.URL;
  * @author burgetr
  * @author Tomas Chocholaty
  */
-public class PDFOutput implements Closeable {
+public class PDFOutput implements Closeable, PagedOutput {
     private PDDocument doc;
     private PDPage page;
     private PDPageContentStream content;
@@ -85,6 +89,69 @@ public class PDFOutput implements Closeable {
      */
     private final float resCoefTextConstant = (float) 1.343;
 
+    /**
+     * The image XObjects already embedded in the document, shared by all the occurrences of an image
+     */
+    private final Map<BufferedImage, PDImageXObject> images = new WeakHashMap<>();
+
+    /**
+     * A buffer for the computed control points of the corner curves
+     */
+    private final float[] controlPoint = new float[2];
+
+    /**
+     * The link actions created for the individual link targets, shared by all the annotations of a link
+     */
+    private final Map<String, PDActionURI> linkActions = new HashMap<>();
+
+    /**
+     * The border style shared by all the link annotations
+     */
+    private PDBorderStyleDictionary linkBorder;
+
+    /**
+     * The most recent link annotation, its anchor and page; it is extended by the following
+     * text boxes of the same anchor on the same page
+     */
+    private PDAnnotationLink currentLink;
+    private Object currentLinkAnchor;
+    private PDPage currentLinkPage;
+
+    /**
+     * The line rectangles (x1, y1, x2, y2) covered by the most recent link annotation
+     */
+    private final List<float[]> currentLinkLines = new ArrayList<>();
+
+    /**
+     * The maximal difference of the baselines of the text runs written as a single line
+     */
+    private static final float BASELINE_TOLERANCE = 0.01f;
+
+    /**
+     * The text object is kept open while consecutive text runs are written so that they share
+     * the text state. It is closed before any other content is written.
+     */
+    private boolean textOpen;
+    private PDFont textFont;
+    private float textFontSize;
+    private float textCharSpacing;
+    private Color textColor;
+
+    // the origin of the current text line
+    private float textLineX, textLineY;
+
+    /**
+     * The baseline of the last text run and the position where it ends according to the layout
+     * ({@code NaN} when the next run must start a new line)
+     */
+    private float textRunY;
+    private float textRunEnd = Float.NaN;
+
+    /**
+     * The underlines of the text in the open text object; they are drawn when the text object is closed
+     */
+    private final List<Underline> underlines = new ArrayList<>();
+
     //========================================================================================
 
     /**
@@ -150,6 +217,7 @@ public class PDFOutput implements Closeable {
      */
     @Override
     public void close() throws IOException {
+        endText();
         content.close();
     }
 
@@ -180,6 +248,7 @@ public class PDFOutput implements Closeable {
      */
     public void setCurrentPage(int pageIndex) throws IOException {
         if (lastpage != pageIndex) {
+            endText();
             page = (PDPage) doc.getDocumentCatalog().getPages().get(pageIndex);
             content.close();
             content = new PDPageContentStream(doc, page, PDPageContentStream.AppendMode.APPEND, true, true);
@@ -194,6 +263,7 @@ public class PDFOutput implements Closeable {
      * @throws IOException
      */
     public void setCurrentPageHard(int pageIndex) throws IOException {
+        endText();
         page = (PDPage) doc.getDocumentCatalog().getPages().get(pageIndex);
         content.close();
         content = new PDPageContentStream(doc, page, PDPageContentStream.AppendMode.APPEND, true, true);
@@ -214,6 +284,7 @@ public class PDFOutput implements Closeable {
      */
     public void drawRectangle(float lineWidth, Color bgColor, float x, float y, float width, float height)
             throws IOException {
+        endText();
         if (bgColor != null) {
             content.setLineWidth(lineWidth);
             setNonStrokingColor(bgColor);
@@ -222,6 +293,65 @@ public class PDFOutput implements Closeable {
         }
     }
 
+    /**
+     * Draws a border with the same width and color on all sides as a single frame filled
+     * using the even-odd rule.
+     *
+     * @param color  - the border color
+     * @param x      - x coordinate of the outer bottom left corner
+     * @param y      - y coordinate of the outer bottom left corner
+     * @param width  - outer width
+     * @param height - outer height
+     * @param border - border width
+     * @param radx   - horizontal radius of the outer corners
+     * @param rady   - vertical radius of the outer corners
+     * @throws IOException
+     */
+    public void drawBorderFrame(Color color, float x, float y, float width, float height, float border,
+                                float radx, float rady) throws IOException {
+        endText();
+        setNonStrokingColor(color);
+        addRoundedRect(x * resCoef, y * resCoef, width * resCoef, height * resCoef, radx * resCoef, rady * resCoef);
+        final float iw = width - 2 * border;
+        final float ih = height - 2 * border;
+        if (iw > 0 && ih > 0) {
+            addRoundedRect((x + border) * resCoef, (y + border) * resCoef, iw * resCoef, ih * resCoef,
+                    Math.max(0, radx - border) * resCoef, Math.max(0, rady - border) * resCoef);
+        }
+        content.fillEvenOdd();
+    }
+
+    /**
+     * Appends a rectangle with elliptical corners to the current path.
+     *
+     * @param x    - x coordinate of the bottom left corner
+     * @param y    - y coordinate of the bottom left corner
+     * @param w    - width
+     * @param h    - height
+     * @param radx - horizontal radius
+     * @param rady - vertical radius
+     * @throws IOException
+     */
+    private void addRoundedRect(float x, float y, float w, float h, float radx, float rady) throws IOException {
+        if (radx <= 0 || rady <= 0) {
+            content.addRect(x, y, w, h);
+            return;
+        }
+        final float k = 0.552284749831f;
+        final float kx = k * radx;
+        final float ky = k * rady;
+        content.moveTo(x + radx, y);
+        content.lineTo(x + w - radx, y);
+        content.curveTo(x + w - radx + kx, y, x + w, y + rady - ky, x + w, y + rady);
+        content.lineTo(x + w, y + h - rady);
+        content.curveTo(x + w, y + h - rady + ky, x + w - radx + kx, y + h, x + w - radx, y + h);
+        content.lineTo(x + radx, y + h);
+        content.curveTo(x + radx - kx, y + h, x, y + h - rady + ky, x, y + h - rady);
+        content.lineTo(x, y + rady);
+        content.curveTo(x, y + rady - ky, x + radx - kx, y, x + radx, y);
+        content.closePath();
+    }
+
     /**
      * Draw rectangle to output page
      *
@@ -234,6 +364,7 @@ public class PDFOutput implements Closeable {
      */
     public void drawCircle(float lineWidth, Color color, float cx, float cy, float r, boolean fill)
             throws IOException {
+        endText();
         cx = cx * resCoef;
         cy = cy * resCoef;
         r = r * resCoef;
@@ -257,11 +388,16 @@ public class PDFOutput implements Closeable {
     }
 
     /**
-     * Writes String to current PDF page using PDFBox.
+     * Writes String to current PDF page using PDFBox. The consecutive texts are written to a single
+     * text object; the texts on the same baseline continue from the end of the previous text and
+     * the gaps between them are expressed as TJ displacements. The end of a text is given by
+     * its width measured during the layout so the string is only encoded when it is shown.
      *
      * @param x             - x coordinate
      * @param y             - t coordinate
      * @param textToInsert  - text to insert
+     * @param width         - width of the text measured during the layout (used for the text advance
+     *                      and the underline), 0 when not known
      * @param font          - font of text
      * @param fontSize      - size of text
      * @param isUnderlined  - true if text is underlined
@@ -270,44 +406,132 @@ public class PDFOutput implements Closeable {
      * @param leading       - the distance between two text line
      * @throws IOException
      */
-    public void addText(float x, float y, String textToInsert, PDFont font, float fontSize,
+    public void addText(float x, float y, String textToInsert, float width, PDFont font, float fontSize,
                         boolean isUnderlined, boolean isBold, float letterSpacing, float leading, Color color) throws IOException {
         x = x * resCoef;
         y = y * resCoef;
         y = pageFormat.getHeight() - y - leading * resCoef * resCoefTextConstant;
-
-        setNonStrokingColor(color);
-
-        content.beginText();
-        content.setFont(font, fontSize * (resCoef * resCoefTextConstant));
-        content.setCharacterSpacing(letterSpacing);
-        content.newLineAtOffset(x, y);
+        final float size = fontSize * (resCoef * resCoefTextConstant);
+
+        beginText(font, size, letterSpacing, color);
+        if (Float.isNaN(textRunEnd) || Math.abs(y - textRunY) > BASELINE_TOLERANCE) {
+            // a new baseline, move to the start of the text
+            content.newLineAtOffset(x - textLineX, y - textLineY);
+            textLineX = x;
+            textLineY = y;
+            textRunY = y;
+        } else {
+            // the same baseline, shift the text by the difference from the end of the previous run
+            final float shift = -(x - textRunEnd) * 1000 / size;
+            if (Math.abs(shift) > 0.01f)
+                content.showTextWithPositioning(new Object[]{shift});
+        }
         try {
             content.showText(textToInsert);
+            textRunEnd = (width > 0) ? x + width * resCoef : Float.NaN;
         } catch (IllegalArgumentException e) {
             // NOTE: seems to happen for embedded icon fonts like glyphicons
             // and fa, add space so there is some text otherwise PDFBox
             // throws IllegalStateException: subset is empty; these work
             // with SVGRenderer
             content.showText(" ");
+            textRunEnd = Float.NaN;
             System.err.println("Error: " + e.getMessage());
         }
-        content.endText();
 
-        // underlines text if text is set underlined
-        if (isUnderlined) {
-            content.setLineWidth(1);
-            float strokeWidth = font.getStringWidth(textToInsert) / 1000 * fontSize;
+        // underlines text if text is set underlined; the underline spans the layout width of the text
+        // so that no string measuring is needed
+        if (isUnderlined && width > 0) {
             float lineHeightCalibration = 1f;
             float yOffset = fontSize / 6.4f;
             if (isBold) {
                 lineHeightCalibration = 1.5f;
                 yOffset = fontSize / 5.7f;
             }
+            addUnderline(color, x, y - yOffset, width * resCoef, resCoef * lineHeightCalibration);
+        }
+    }
 
-            content.addRect(x, y - yOffset, strokeWidth * resCoef * resCoefTextConstant, resCoef * lineHeightCalibration);
-            content.fill();
+    /**
+     * Adds an underline to the open text object. The underline is merged with the previous one
+     * when they are on the same line and they touch or overlap.
+     */
+    private void addUnderline(Color color, float x, float y, float width, float height) {
+        if (!underlines.isEmpty()) {
+            final Underline last = underlines.get(underlines.size() - 1);
+            if (sameColor(last.color, color) && Math.abs(last.y - y) <= BASELINE_TOLERANCE && last.height == height
+                    && x <= last.x + last.width + BASELINE_TOLERANCE && x + width >= last.x - BASELINE_TOLERANCE) {
+                final float x2 = Math.max(last.x + last.width, x + width);
+                last.x = Math.min(last.x, x);
+                last.width = x2 - last.x;
+                return;
+            }
         }
+        underlines.add(new Underline(color, x, y, width, height));
+    }
+
+    /**
+     * Opens the text object when necessary and sets the text state.
+     */
+    private void beginText(PDFont font, float size, float letterSpacing, Color color) throws IOException {
+        if (!textOpen) {
+            content.beginText();
+            textOpen = true;
+            textFont = null;
+            textColor = null;
+            textLineX = 0;
+            textLineY = 0;
+        }
+        if (textColor == null || !sameColor(textColor, color)) {
+            setNonStrokingColor(color);
+            textColor = color;
+        }
+        if (font != textFont || size != textFontSize) {
+            content.setFont(font, size);
+            textFont = font;
+            textFontSize = size;
+            textCharSpacing = Float.NaN;
+        }
+        if (letterSpacing != textCharSpacing) {
+            content.setCharacterSpacing(letterSpacing);
+            textCharSpacing = letterSpacing;
+        }
+    }
+
+    /**
+     * Closes the open text object and draws the underlines of its text.
+     */
+    private void endText() throws IOException {
+        if (textOpen) {
+            content.endText();
+            textOpen = false;
+            textRunEnd = Float.NaN;
+            if (!underlines.isEmpty()) {
+                // the underlines of the same color are filled as a single path
+                content.setLineWidth(1);
+                Color current = null;
+                for (Underline u : underlines) {
+                    if (current == null || !sameColor(current, u.color)) {
+                        if (current != null)
+                            content.fill();
+                        setNonStrokingColor(u.color);
+                        current = u.color;
+                    }
+                    content.addRect(u.x, u.y, u.width, u.height);
+                }
+                content.fill();
+                underlines.clear();
+            }
+        }
+    }
+
+    private static boolean sameColor(Color c1, Color c2) {
+        if (c1 == c2)
+            return true;
+        if (c1 == null || c2 == null)
+            return false;
+        return c1.getRed() == c2.getRed() && c1.getGreen() == c2.getGreen()
+                && c1.getBlue() == c2.getBlue() && c1.getAlpha() == c2.getAlpha();
     }
 
     /**
@@ -321,21 +545,40 @@ public class PDFOutput implements Closeable {
      * @throws IOException
      */
     public void insertImage(BufferedImage img, float x, float y, float width, float height) throws IOException {
+        endText();
         x = x * resCoef;
         y = y * resCoef;
         width = width * resCoef;
         height = height * resCoef;
         y = pageFormat.getHeight() - height - y;
-        PDImageXObject ximage = LosslessFactory.createFromImage(doc, img);
+        PDImageXObject ximage = getImageXObject(img);
         content.drawImage(ximage, x, y, width, height);
     }
 
+    /**
+     * Returns the XObject representing the image in the document. The image is embedded
+     * only once, the following calls with the same image instance share the XObject.
+     *
+     * @param img - the image
+     * @return the image XObject
+     * @throws IOException
+     */
+    public PDImageXObject getImageXObject(BufferedImage img) throws IOException {
+        PDImageXObject ximage = images.get(img);
+        if (ximage == null) {
+            ximage = LosslessFactory.createFromImage(doc, img);
+            images.put(img, ximage);
+        }
+        return ximage;
+    }
+
     /**
      * Inserts background to whole recent PDF page using PDFBox
      *
      * @throws IOException
      */
     private void fillPage(Color bgColor) throws IOException {
+        endText();
         setNonStrokingColor(bgColor);
         content.addRect(0, 0, pageFormat.getWidth(), pageFormat.getHeight());
         content.fill();
@@ -344,10 +587,12 @@ public class PDFOutput implements Closeable {
     //========================================================================================
 
     public void saveGraphicsState() throws IOException {
+        endText();
         content.saveGraphicsState();
     }
 
     public void restoreGraphicsState() throws IOException {
+        endText();
         content.restoreGraphicsState();
     }
 
@@ -360,6 +605,7 @@ public class PDFOutput implements Closeable {
      * @throws IOException
      */
     public void addTransform(AffineTransform aff, float ox, float oy) throws IOException {
+        endText();
         Matrix matrix = new Matrix(aff);
         content.transform(Matrix.getTranslateInstance(ox, oy));
         content.transform(matrix);
@@ -424,6 +670,7 @@ public class PDFOutput implements Closeable {
      */
     void drawBgGrad(float lineWidth, PDShadingType3 shading, float x, float y, float width, float height,
                     Matrix matrix) throws IOException {
+        endText();
         if (shading == null)
             return;
         content.saveGraphicsState();
@@ -445,22 +692,9 @@ public class PDFOutput implements Closeable {
      * @param currentPage - page for actual corner
      */
     public void recalculateYCoordinatesForPDFCorner(CornerRadius cr, Node node, int currentPage) {
-        cr.a.x *= getResCoef();
-        cr.b.x *= getResCoef();
-        cr.c.x *= getResCoef();
-        cr.d.x *= getResCoef();
-        cr.e.x *= getResCoef();
-        cr.g.x *= getResCoef();
-        cr.h.x *= getResCoef();
-        cr.o.x *= getResCoef();
-        cr.a.y = convertToPFDCoordinate(cr.a.y, currentPage, node) * getResCoef();
-        cr.b.y = convertToPFDCoordinate(cr.b.y, currentPage, node) * getResCoef();
-        cr.c.y = convertToPFDCoordinate(cr.c.y, currentPage, node) * getResCoef();
-        cr.d.y = convertToPFDCoordinate(cr.d.y, currentPage, node) * getResCoef();
-        cr.e.y = convertToPFDCoordinate(cr.e.y, currentPage, node) * getResCoef();
-        cr.g.y = convertToPFDCoordinate(cr.g.y, currentPage, node) * getResCoef();
-        cr.h.y = convertToPFDCoordinate(cr.h.y, currentPage, node) * getResCoef();
-        cr.o.y = convertToPFDCoordinate(cr.o.y, currentPage, node) * getResCoef();
+        for (int i = CornerRadius.A; i <= CornerRadius.H; i++) {
+            cr.setPoint(i, cr.getX(i) * getResCoef(), convertToPFDCoordinate(cr.getY(i), currentPage, node) * getResCoef());
+        }
     }
 
 
@@ -504,35 +738,36 @@ public class PDFOutput implements Closeable {
      * @param widthHor  - horizontal width of border
      */
     public void drawBorderRadiusACA(BorderPDF borderPDF, CornerRadius cr, ElementBox elem, String side, float widthVer, float widthHor) throws IOException {
+        endText();
         // special case when one edge is zero width - this half of corner is skip
-        if (!(cr.a.x == cr.h.x && cr.g.x == cr.b.x && cr.a.y == cr.h.y && cr.g.y == cr.b.y)) {
+        if (!(cr.getX(CornerRadius.A) == cr.getX(CornerRadius.H) && cr.getX(CornerRadius.G) == cr.getX(CornerRadius.B) && cr.getY(CornerRadius.A) == cr.getY(CornerRadius.H) && cr.getY(CornerRadius.G) == cr.getY(CornerRadius.B))) {
             content.setLineWidth(0.1f);
             setStrokingColor(borderPDF.getBorderColor(elem, side));
             setNonStrokingColor(borderPDF.getBorderColor(elem, side));
 
-            content.moveTo(cr.a.x, cr.a.y);
-            DPoint controlPoint = getOuterControlPointAHA(cr);
-            content.curveTo1(controlPoint.x, controlPoint.y, cr.h.x, cr.h.y);
+            content.moveTo(cr.getX(CornerRadius.A), cr.getY(CornerRadius.A));
+            float[] point = getOuterControlPointAHA(cr);
+            content.curveTo1(point[0], point[1], cr.getX(CornerRadius.H), cr.getY(CornerRadius.H));
 
-            content.curveTo1((cr.h.x + cr.g.x) / 2, (cr.h.y + cr.g.y) / 2, cr.g.x, cr.g.y);
+            content.curveTo1((cr.getX(CornerRadius.H) + cr.getX(CornerRadius.G)) / 2, (cr.getY(CornerRadius.H) + cr.getY(CornerRadius.G)) / 2, cr.getX(CornerRadius.G), cr.getY(CornerRadius.G));
 
             // special case when width border is same as radius
             if (widthHor != cr.x && widthVer != cr.y) {
-                controlPoint = getInnerControlPointHB(cr);
-                content.curveTo1(controlPoint.x, controlPoint.y, cr.b.x, cr.b.y);
+                point = getInnerControlPointHB(cr);
+                content.curveTo1(point[0], point[1], cr.getX(CornerRadius.B), cr.getY(CornerRadius.B));
             }
 
             if (widthVer > cr.y || widthHor > cr.x) {
-                if ((cr.a.x < cr.h.x && cr.a.y < cr.h.y) || (cr.a.x > cr.h.x && cr.a.y > cr.h.y)) {
+                if ((cr.getX(CornerRadius.A) < cr.getX(CornerRadius.H) && cr.getY(CornerRadius.A) < cr.getY(CornerRadius.H)) || (cr.getX(CornerRadius.A) > cr.getX(CornerRadius.H) && cr.getY(CornerRadius.A) > cr.getY(CornerRadius.H))) {
                     //2. and 3. corner has the coordinates reversed
-                    content.curveTo1((cr.b.x + cr.a.x) / 2, (cr.b.y + cr.b.y) / 2, cr.a.x, cr.b.y);
-                    content.curveTo1((cr.a.x + cr.a.x) / 2, (cr.b.y + cr.a.y) / 2, cr.a.x, cr.a.y);
+                    content.curveTo1((cr.getX(CornerRadius.B) + cr.getX(CornerRadius.A)) / 2, (cr.getY(CornerRadius.B) + cr.getY(CornerRadius.B)) / 2, cr.getX(CornerRadius.A), cr.getY(CornerRadius.B));
+                    content.curveTo1((cr.getX(CornerRadius.A) + cr.getX(CornerRadius.A)) / 2, (cr.getY(CornerRadius.B) + cr.getY(CornerRadius.A)) / 2, cr.getX(CornerRadius.A), cr.getY(CornerRadius.A));
                 } else {
-                    content.curveTo1((cr.b.x + cr.b.x) / 2, (cr.b.y + cr.a.y) / 2, cr.b.x, cr.a.y);
-                    content.curveTo1((cr.b.x + cr.a.x) / 2, (cr.a.y + cr.a.y) / 2, cr.a.x, cr.a.y);
+                    content.curveTo1((cr.getX(CornerRadius.B) + cr.getX(CornerRadius.B)) / 2, (cr.getY(CornerRadius.B) + cr.getY(CornerRadius.A)) / 2, cr.getX(CornerRadius.B), cr.getY(CornerRadius.A));
+                    content.curveTo1((cr.getX(CornerRadius.B) + cr.getX(CornerRadius.A)) / 2, (cr.getY(CornerRadius.A) + cr.getY(CornerRadius.A)) / 2, cr.getX(CornerRadius.A), cr.getY(CornerRadius.A));
                 }
             } else {
-                content.curveTo1((cr.b.x + cr.a.x) / 2, (cr.b.y + cr.b.y) / 2, cr.a.x, cr.a.y);
+                content.curveTo1((cr.getX(CornerRadius.B) + cr.getX(CornerRadius.A)) / 2, (cr.getY(CornerRadius.B) + cr.getY(CornerRadius.B)) / 2, cr.getX(CornerRadius.A), cr.getY(CornerRadius.A));
             }
             content.fill();
         }
@@ -550,35 +785,36 @@ public class PDFOutput implements Closeable {
      * @param widthHor  - horizontal width of border
      */
     public void drawBorderRadiusACB(BorderPDF borderPDF, CornerRadius cr, ElementBox elem, String side, float widthVer, float widthHor) throws IOException {
+        endText();
         // special case when one edge is zero width - this half of corner is skip
-        if (!(cr.c.x == cr.h.x && cr.g.x == cr.d.x && cr.c.y == cr.h.y && cr.g.y == cr.d.y)) {
+        if (!(cr.getX(CornerRadius.C) == cr.getX(CornerRadius.H) && cr.getX(CornerRadius.G) == cr.getX(CornerRadius.D) && cr.getY(CornerRadius.C) == cr.getY(CornerRadius.H) && cr.getY(CornerRadius.G) == cr.getY(CornerRadius.D))) {
             content.setLineWidth(0.1f);
             setStrokingColor(borderPDF.getBorderColor(elem, side));
             setNonStrokingColor(borderPDF.getBorderColor(elem, side));
 
-            content.moveTo(cr.c.x, cr.c.y);
-            DPoint controlPoint = getOuterControlPointCHC(cr);
-            content.curveTo1(controlPoint.x, controlPoint.y, cr.h.x, cr.h.y);
+            content.moveTo(cr.getX(CornerRadius.C), cr.getY(CornerRadius.C));
+            float[] point = getOuterControlPointCHC(cr);
+            content.curveTo1(point[0], point[1], cr.getX(CornerRadius.H), cr.getY(CornerRadius.H));
 
-            content.curveTo1((cr.h.x + cr.g.x) / 2, (cr.h.y + cr.g.y) / 2, cr.g.x, cr.g.y);
+            content.curveTo1((cr.getX(CornerRadius.H) + cr.getX(CornerRadius.G)) / 2, (cr.getY(CornerRadius.H) + cr.getY(CornerRadius.G)) / 2, cr.getX(CornerRadius.G), cr.getY(CornerRadius.G));
 
             // special case when width border is same as radius
             if (widthHor != cr.x && widthVer != cr.y) {
-                controlPoint = getInnerControlPointCD(cr);
-                content.curveTo1(controlPoint.x, controlPoint.y, cr.d.x, cr.d.y);
+                point = getInnerControlPointCD(cr);
+                content.curveTo1(point[0], point[1], cr.getX(CornerRadius.D), cr.getY(CornerRadius.D));
             }
 
             if (widthVer > cr.y || widthHor > cr.x) {
-                if ((cr.a.x < cr.h.x && cr.a.y < cr.h.y) || (cr.a.x > cr.h.x && cr.a.y > cr.h.y)) {
+                if ((cr.getX(CornerRadius.A) < cr.getX(CornerRadius.H) && cr.getY(CornerRadius.A) < cr.getY(CornerRadius.H)) || (cr.getX(CornerRadius.A) > cr.getX(CornerRadius.H) && cr.getY(CornerRadius.A) > cr.getY(CornerRadius.H))) {
                     //2. and 3. corner has the coordinates reversed
-                    content.curveTo1((cr.d.x + cr.d.x) / 2, (cr.d.y + cr.c.y) / 2, cr.d.x, cr.c.y);
-                    content.curveTo1((cr.c.x + cr.d.x) / 2, (cr.c.y + cr.c.y) / 2, cr.c.x, cr.c.y);
+                    content.curveTo1((cr.getX(CornerRadius.D) + cr.getX(CornerRadius.D)) / 2, (cr.getY(CornerRadius.D) + cr.getY(CornerRadius.C)) / 2, cr.getX(CornerRadius.D), cr.getY(CornerRadius.C));
+                    content.curveTo1((cr.getX(CornerRadius.C) + cr.getX(CornerRadius.D)) / 2, (cr.getY(CornerRadius.C) + cr.getY(CornerRadius.C)) / 2, cr.getX(CornerRadius.C), cr.getY(CornerRadius.C));
                 } else {
-                    content.curveTo1((cr.d.x + cr.c.x) / 2, (cr.d.y + cr.d.y) / 2, cr.c.x, cr.d.y);
-                    content.curveTo1((cr.c.x + cr.c.x) / 2, (cr.d.y + cr.c.y) / 2, cr.c.x, cr.c.y);
+                    content.curveTo1((cr.getX(CornerRadius.D) + cr.getX(CornerRadius.C)) / 2, (cr.getY(CornerRadius.D) + cr.getY(CornerRadius.D)) / 2, cr.getX(CornerRadius.C), cr.getY(CornerRadius.D));
+                    content.curveTo1((cr.getX(CornerRadius.C) + cr.getX(CornerRadius.C)) / 2, (cr.getY(CornerRadius.D) + cr.getY(CornerRadius.C)) / 2, cr.getX(CornerRadius.C), cr.getY(CornerRadius.C));
                 }
             } else {
-                content.curveTo1((cr.d.x + cr.c.x) / 2, (cr.d.y + cr.c.y) / 2, cr.c.x, cr.c.y);
+                content.curveTo1((cr.getX(CornerRadius.D) + cr.getX(CornerRadius.C)) / 2, (cr.getY(CornerRadius.D) + cr.getY(CornerRadius.C)) / 2, cr.getX(CornerRadius.C), cr.getY(CornerRadius.C));
             }
 
             content.fill();
@@ -591,22 +827,22 @@ public class PDFOutput implements Closeable {
      *
      * @param cr - class representing rounded corner
      */
-    private DPoint getOuterControlPointAHA(CornerRadius cr) {
-        float b1x = cr.e.x;
-        float b1y = cr.e.y;
+    private float[] getOuterControlPointAHA(CornerRadius cr) {
+        float b1x = cr.getX(CornerRadius.E);
+        float b1y = cr.getY(CornerRadius.E);
         float b2x = 0;
         float b2y = 0;
 
-        if (cr.a.x < cr.h.x) {
-            b2x = cr.a.x + (Math.abs(cr.h.x - cr.a.x)) / 2;
+        if (cr.getX(CornerRadius.A) < cr.getX(CornerRadius.H)) {
+            b2x = cr.getX(CornerRadius.A) + (Math.abs(cr.getX(CornerRadius.H) - cr.getX(CornerRadius.A))) / 2;
         } else {
-            b2x = cr.a.x - (Math.abs(cr.h.x - cr.a.x)) / 2;
+            b2x = cr.getX(CornerRadius.A) - (Math.abs(cr.getX(CornerRadius.H) - cr.getX(CornerRadius.A))) / 2;
         }
 
-        if (cr.a.y < cr.h.y) {
-            b2y = cr.h.y - (Math.abs(cr.a.y - cr.h.y)) / 2;
+        if (cr.getY(CornerRadius.A) < cr.getY(CornerRadius.H)) {
+            b2y = cr.getY(CornerRadius.H) - (Math.abs(cr.getY(CornerRadius.A) - cr.getY(CornerRadius.H))) / 2;
         } else {
-            b2y = cr.h.y + (Math.abs(cr.a.y - cr.h.y)) / 2;
+            b2y = cr.getY(CornerRadius.H) + (Math.abs(cr.getY(CornerRadius.A) - cr.getY(CornerRadius.H))) / 2;
         }
 
         float vx = b1x - b2x;
@@ -615,21 +851,21 @@ public class PDFOutput implements Closeable {
         vx = -vy;
         vy = temp;
 
-        float c = 0 - vx * cr.e.x - vy * cr.e.y;
+        float c = 0 - vx * cr.getX(CornerRadius.E) - vy * cr.getY(CornerRadius.E);
         float point;
-        DPoint dPoint = new DPoint();
-        if ((cr.a.x < cr.h.x && cr.a.y < cr.h.y) || (cr.a.x > cr.h.x && cr.a.y > cr.h.y)) {
-            point = (0 - vx * cr.a.x - c) / vy;
-            dPoint.x = cr.a.x;
-            dPoint.y = point;
+        final float[] dPoint = controlPoint;
+        if ((cr.getX(CornerRadius.A) < cr.getX(CornerRadius.H) && cr.getY(CornerRadius.A) < cr.getY(CornerRadius.H)) || (cr.getX(CornerRadius.A) > cr.getX(CornerRadius.H) && cr.getY(CornerRadius.A) > cr.getY(CornerRadius.H))) {
+            point = (0 - vx * cr.getX(CornerRadius.A) - c) / vy;
+            dPoint[0] = cr.getX(CornerRadius.A);
+            dPoint[1] = point;
         } else {
             if (vx == 0) {
-                dPoint.x = cr.a.x;
+                dPoint[0] = cr.getX(CornerRadius.A);
             } else {
-                point = (0 - vy * cr.a.y - c) / vx;
-                dPoint.x = point;
+                point = (0 - vy * cr.getY(CornerRadius.A) - c) / vx;
+                dPoint[0] = point;
             }
-            dPoint.y = cr.a.y;
+            dPoint[1] = cr.getY(CornerRadius.A);
         }
         return dPoint;
     }
@@ -640,22 +876,22 @@ public class PDFOutput implements Closeable {
      *
      * @param cr - class representing rounded corner
      */
-    private DPoint getOuterControlPointCHC(CornerRadius cr) {
-        float b1x = cr.e.x;
-        float b1y = cr.e.y;
+    private float[] getOuterControlPointCHC(CornerRadius cr) {
+        float b1x = cr.getX(CornerRadius.E);
+        float b1y = cr.getY(CornerRadius.E);
         float b2x = 0;
         float b2y = 0;
 
-        if (cr.c.x > cr.h.x) {
-            b2x = cr.h.x + (Math.abs(cr.c.x - cr.h.x) / 2);
+        if (cr.getX(CornerRadius.C) > cr.getX(CornerRadius.H)) {
+            b2x = cr.getX(CornerRadius.H) + (Math.abs(cr.getX(CornerRadius.C) - cr.getX(CornerRadius.H)) / 2);
         } else {
-            b2x = cr.h.x - (Math.abs(cr.c.x - cr.h.x) / 2);
+            b2x = cr.getX(CornerRadius.H) - (Math.abs(cr.getX(CornerRadius.C) - cr.getX(CornerRadius.H)) / 2);
         }
 
-        if (cr.c.y < cr.h.y) {
-            b2y = cr.c.y + (Math.abs(cr.h.y - cr.c.y) / 2);
+        if (cr.getY(CornerRadius.C) < cr.getY(CornerRadius.H)) {
+            b2y = cr.getY(CornerRadius.C) + (Math.abs(cr.getY(CornerRadius.H) - cr.getY(CornerRadius.C)) / 2);
         } else {
-            b2y = cr.c.y - (Math.abs(cr.h.y - cr.c.y) / 2);
+            b2y = cr.getY(CornerRadius.C) - (Math.abs(cr.getY(CornerRadius.H) - cr.getY(CornerRadius.C)) / 2);
         }
 
         float vx = b1x - b2x;
@@ -665,17 +901,17 @@ public class PDFOutput implements Closeable {
         vy = temp;
 
 
-        float c = 0 - vx * cr.e.x - vy * cr.e.y;
+        float c = 0 - vx * cr.getX(CornerRadius.E) - vy * cr.getY(CornerRadius.E);
         float point = 0;
-        DPoint dPoint = new DPoint();
-        if ((cr.c.x < cr.h.x && cr.c.y < cr.h.y) || (cr.c.x > cr.h.x && cr.c.y > cr.h.y)) {
-            point = (0 - vy * cr.c.y - c) / vx;
-            dPoint.x = point;
-            dPoint.y = cr.c.y;
+        final float[] dPoint = controlPoint;
+        if ((cr.getX(CornerRadius.C) < cr.getX(CornerRadius.H) && cr.getY(CornerRadius.C) < cr.getY(CornerRadius.H)) || (cr.getX(CornerRadius.C) > cr.getX(CornerRadius.H) && cr.getY(CornerRadius.C) > cr.getY(CornerRadius.H))) {
+            point = (0 - vy * cr.getY(CornerRadius.C) - c) / vx;
+            dPoint[0] = point;
+            dPoint[1] = cr.getY(CornerRadius.C);
         } else {
-            point = (0 - vx * cr.c.x - c) / vy;
-            dPoint.x = cr.c.x;
-            dPoint.y = point;
+            point = (0 - vx * cr.getX(CornerRadius.C) - c) / vy;
+            dPoint[0] = cr.getX(CornerRadius.C);
+            dPoint[1] = point;
         }
         return dPoint;
     }
@@ -685,12 +921,12 @@ public class PDFOutput implements Closeable {
      *
      * @param cr - class representing rounded corner
      */
-    private DPoint getInnerControlPointHB(CornerRadius cr) {
-        float b2x = cr.b.x + (cr.g.x - cr.b.x) / 2;
-        float b2y = cr.g.y + (cr.b.y - cr.g.y) / 2;
+    private float[] getInnerControlPointHB(CornerRadius cr) {
+        float b2x = cr.getX(CornerRadius.B) + (cr.getX(CornerRadius.G) - cr.getX(CornerRadius.B)) / 2;
+        float b2y = cr.getY(CornerRadius.G) + (cr.getY(CornerRadius.B) - cr.getY(CornerRadius.G)) / 2;
 
-        float b1x = cr.e.x;
-        float b1y = cr.e.y;
+        float b1x = cr.getX(CornerRadius.E);
+        float b1y = cr.getY(CornerRadius.E);
         float vx = b1x - b2x;
         float vy = b1y - b2y;
         float temp = vx;
@@ -698,16 +934,16 @@ public class PDFOutput implements Closeable {
         vy = temp;
 
         float point;
-        DPoint dPoint = new DPoint();
-        float c = 0 - vx * cr.e.x - vy * cr.e.y;
-        if ((cr.a.x < cr.h.x && cr.a.y < cr.h.y) || (cr.a.x > cr.h.x && cr.a.y > cr.h.y)) {
-            point = (0 - vx * cr.b.x - c) / vy;
-            dPoint.x = cr.b.x;
-            dPoint.y = point;
+        final float[] dPoint = controlPoint;
+        float c = 0 - vx * cr.getX(CornerRadius.E) - vy * cr.getY(CornerRadius.E);
+        if ((cr.getX(CornerRadius.A) < cr.getX(CornerRadius.H) && cr.getY(CornerRadius.A) < cr.getY(CornerRadius.H)) || (cr.getX(CornerRadius.A) > cr.getX(CornerRadius.H) && cr.getY(CornerRadius.A) > cr.getY(CornerRadius.H))) {
+            point = (0 - vx * cr.getX(CornerRadius.B) - c) / vy;
+            dPoint[0] = cr.getX(CornerRadius.B);
+            dPoint[1] = point;
         } else {
-            point = (0 - vy * cr.b.y - c) / vx;
-            dPoint.x = point;
-            dPoint.y = cr.b.y;
+            point = (0 - vy * cr.getY(CornerRadius.B) - c) / vx;
+            dPoint[0] = point;
+            dPoint[1] = cr.getY(CornerRadius.B);
         }
         return dPoint;
     }
@@ -718,29 +954,29 @@ public class PDFOutput implements Closeable {
      *
      * @param cr - class representing rounded corner
      */
-    private DPoint getInnerControlPointCD(CornerRadius cr) {
-        float b2x = cr.g.x + (cr.d.x - cr.g.x) / 2;
-        float b2y = cr.d.y + (cr.g.y - cr.d.y) / 2;
+    private float[] getInnerControlPointCD(CornerRadius cr) {
+        float b2x = cr.getX(CornerRadius.G) + (cr.getX(CornerRadius.D) - cr.getX(CornerRadius.G)) / 2;
+        float b2y = cr.getY(CornerRadius.D) + (cr.getY(CornerRadius.G) - cr.getY(CornerRadius.D)) / 2;
 
-        float b1x = cr.e.x;
-        float b1y = cr.e.y;
+        float b1x = cr.getX(CornerRadius.E);
+        float b1y = cr.getY(CornerRadius.E);
         float vx = b1x - b2x;
         float vy = b1y - b2y;
         float temp = vx;
         vx = -vy;
         vy = temp;
 
-        DPoint dPoint = new DPoint();
+        final float[] dPoint = controlPoint;
         float point;
-        float c = 0 - vx * cr.e.x - vy * cr.e.y;
-        if ((cr.c.x < cr.h.x && cr.c.y < cr.h.y) || (cr.c.x > cr.h.x && cr.c.y > cr.h.y)) {
-            point = (0 - vy * cr.d.y - c) / vx;
-            dPoint.x = point;
-            dPoint.y = cr.d.y;
+        float c = 0 - vx * cr.getX(CornerRadius.E) - vy * cr.getY(CornerRadius.E);
+        if ((cr.getX(CornerRadius.C) < cr.getX(CornerRadius.H) && cr.getY(CornerRadius.C) < cr.getY(CornerRadius.H)) || (cr.getX(CornerRadius.C) > cr.getX(CornerRadius.H) && cr.getY(CornerRadius.C) > cr.getY(CornerRadius.H))) {
+            point = (0 - vy * cr.getY(CornerRadius.D) - c) / vx;
+            dPoint[0] = point;
+            dPoint[1] = cr.getY(CornerRadius.D);
         } else {
-            point = (0 - vx * cr.d.x - c) / vy;
-            dPoint.x = cr.d.x;
-            dPoint.y = point;
+            point = (0 - vx * cr.getX(CornerRadius.D) - c) / vy;
+            dPoint[0] = cr.getX(CornerRadius.D);
+            dPoint[1] = point;
         }
         return dPoint;
     }
@@ -755,14 +991,14 @@ public class PDFOutput implements Closeable {
      */
     private void drawClippedPartOfPathForRaius(Border border, int i) throws IOException {
         CornerRadius cr = border.getRadius(i);
-        content.lineTo(cr.a.x, cr.a.y);
-        if (!(cr.a.x == cr.h.x && cr.g.x == cr.b.x && cr.a.y == cr.h.y && cr.g.y == cr.b.y)) {
-            DPoint pointAH = getOuterControlPointAHA(cr);
-            content.curveTo1(pointAH.x, pointAH.y, cr.h.x, cr.h.y);
+        content.lineTo(cr.getX(CornerRadius.A), cr.getY(CornerRadius.A));
+        if (!(cr.getX(CornerRadius.A) == cr.getX(CornerRadius.H) && cr.getX(CornerRadius.G) == cr.getX(CornerRadius.B) && cr.getY(CornerRadius.A) == cr.getY(CornerRadius.H) && cr.getY(CornerRadius.G) == cr.getY(CornerRadius.B))) {
+            final float[] pointAH = getOuterControlPointAHA(cr);
+            content.curveTo1(pointAH[0], pointAH[1], cr.getX(CornerRadius.H), cr.getY(CornerRadius.H));
         }
-        if (!(cr.c.x == cr.h.x && cr.g.x == cr.d.x && cr.c.y == cr.h.y && cr.g.y == cr.d.y)) {
-            DPoint pointCH = getOuterControlPointCHC(cr);
-            content.curveTo1(pointCH.x, pointCH.y, cr.c.x, cr.c.y);
+        if (!(cr.getX(CornerRadius.C) == cr.getX(CornerRadius.H) && cr.getX(CornerRadius.G) == cr.getX(CornerRadius.D) && cr.getY(CornerRadius.C) == cr.getY(CornerRadius.H) && cr.getY(CornerRadius.G) == cr.getY(CornerRadius.D))) {
+            final float[] pointCH = getOuterControlPointCHC(cr);
+            content.curveTo1(pointCH[0], pointCH[1], cr.getX(CornerRadius.C), cr.getY(CornerRadius.C));
         }
     }
 
@@ -773,10 +1009,11 @@ public class PDFOutput implements Closeable {
      * @throws IOException
      */
     public void createClippedPath(Border border) throws IOException {
+        endText();
         content.setLineWidth(0);
 
         CornerRadius cr = border.getRadius(1);
-        content.moveTo(cr.a.x, cr.a.y);
+        content.moveTo(cr.getX(CornerRadius.A), cr.getY(CornerRadius.A));
         drawClippedPartOfPathForRaius(border, 1);
         drawClippedPartOfPathForRaius(border, 3);
         drawClippedPartOfPathForRaius(border, 4);
@@ -810,7 +1047,7 @@ public class PDFOutput implements Closeable {
         height = height * resCoef;
         y = pageFormat.getHeight() - height - y;
 
-        PDImageXObject ximage = LosslessFactory.createFromImage(doc, img);
+        PDImageXObject ximage = getImageXObject(img);
         content.drawImage(ximage, x, y, width, height);
         restoreGraphicsState();
     }
@@ -832,18 +1069,20 @@ public class PDFOutput implements Closeable {
     /**
      * Method for generate half of normal corner
      *
-     * @param point1      - first point for normal corner
-     * @param point2      - second point for normal corner
+     * @param border      - the border
+     * @param point1      - index of the first point for normal corner
+     * @param point2      - index of the second point for normal corner
      * @param node        - node corresponding with actual element
      * @param currentPage - current page
      * @param color       - color of border
      */
-    public void drawNormalCorner(DPoint point1, DPoint point2, Node node, int currentPage, Color color) throws IOException {
+    public void drawNormalCorner(Border border, int point1, int point2, Node node, int currentPage, Color color) throws IOException {
+        endText();
         setNonStrokingColor(color);
-        float x1 = point1.x * getResCoef();
-        float y1 = convertToPFDCoordinate(point1.y, currentPage, node) * getResCoef();
-        float x2 = point2.x * getResCoef();
-        float y2 = convertToPFDCoordinate(point2.y, currentPage, node) * getResCoef();
+        float x1 = border.getEdgeX(point1) * getResCoef();
+        float y1 = convertToPFDCoordinate(border.getEdgeY(point1), currentPage, node) * getResCoef();
+        float x2 = border.getEdgeX(point2) * getResCoef();
+        float y2 = convertToPFDCoordinate(border.getEdgeY(point2), currentPage, node) * getResCoef();
         content.moveTo(x1, y2);
         content.lineTo(x2, y1);
         content.lineTo(x1, y1);
@@ -852,42 +1091,136 @@ public class PDFOutput implements Closeable {
     }
 
     /**
-     * Method for render hypertext link
+     * Method for render hypertext link. The consecutive text boxes of the same anchor are
+     * covered by a single annotation; its rectangles are merged on each line and a link wrapped
+     * to more lines is described by the quadrilaterals of the individual lines.
      *
      * @param text    - text for render
+     * @param anchor  - the anchor the text belongs to
      * @param href    - url
      * @param x       - x coordinate
      * @param y       - y coordinate
      * @param leading - the distance between two text line
      */
-    public void renderLink(TextBox text, String href, float x, float y, float leading) throws IOException {
+    public void renderLink(TextBox text, Object anchor, String href, float x, float y, float leading) throws IOException {
         x = x * resCoef;
         y = y * resCoef;
         y = pageFormat.getHeight() - y - leading * resCoef;
 
-        URL base = text.getViewport().getFactory().getBaseURL();
-        URL url = null;
-        try {
-            url = new URL(base, href);
-        } catch (MalformedURLException e) {
+        final float width = text.getContentWidth() * resCoef;
+        final float x1 = Math.min(x, x + width);
+        final float x2 = Math.max(x, x + width);
+        final float y1 = y - text.getContentHeight() * resCoef;
+        final float y2 = y;
+
+        if (currentLink != null && currentLinkAnchor == anchor && currentLinkPage == page) {
+            extendLink(x1, y1, x2, y2);
+            return;
         }
 
         PDAnnotationLink link = new PDAnnotationLink();
-        PDActionURI actionURI = new PDActionURI();
-        actionURI.setURI(url != null ? url.toString() : href);
-        link.setAction(actionURI);
-
-        PDBorderStyleDictionary borderULine = new PDBorderStyleDictionary();
-        borderULine.setStyle(PDBorderStyleDictionary.STYLE_UNDERLINE);
-        borderULine.setWidth(0);
-        link.setBorderStyle(borderULine);
-
-        PDRectangle pdRectangle = new PDRectangle();
-        pdRectangle.setLowerLeftX(x + text.getContentWidth() * resCoef);
-        pdRectangle.setLowerLeftY(y - text.getContentHeight() * resCoef);
-        pdRectangle.setUpperRightX(x);
-        pdRectangle.setUpperRightY(y);
-        link.setRectangle(pdRectangle);
+        link.setAction(getLinkAction(text, href));
+        if (linkBorder == null) {
+            linkBorder = new PDBorderStyleDictionary();
+            linkBorder.setStyle(PDBorderStyleDictionary.STYLE_UNDERLINE);
+            linkBorder.setWidth(0);
+        }
+        link.setBorderStyle(linkBorder);
+
+        link.setRectangle(new PDRectangle(x1, y1, x2 - x1, y2 - y1));
         page.getAnnotations().add(link);
+
+        currentLink = link;
+        currentLinkAnchor = anchor;
+        currentLinkPage = page;
+        currentLinkLines.clear();
+        currentLinkLines.add(new float[]{x1, y1, x2, y2});
+    }
+
+    /**
+     * Extends the current link annotation by a rectangle. The rectangle is merged with the last
+     * line of the link when they overlap vertically, otherwise it starts a new line.
+     */
+    private void extendLink(float x1, float y1, float x2, float y2) {
+        final float[] last = currentLinkLines.get(currentLinkLines.size() - 1);
+        final float overlap = Math.min(last[3], y2) - Math.max(last[1], y1);
+        if (overlap > 0.5f * Math.min(last[3] - last[1], y2 - y1)) {
+            last[0] = Math.min(last[0], x1);
+            last[1] = Math.min(last[1], y1);
+            last[2] = Math.max(last[2], x2);
+            last[3] = Math.max(last[3], y2);
+        } else {
+            currentLinkLines.add(new float[]{x1, y1, x2, y2});
+        }
+
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (float[] line : currentLinkLines) {
+            minX = Math.min(minX, line[0]);
+            minY = Math.min(minY, line[1]);
+            maxX = Math.max(maxX, line[2]);
+            maxY = Math.max(maxY, line[3]);
+        }
+        currentLink.setRectangle(new PDRectangle(minX, minY, maxX - minX, maxY - minY));
+
+        if (currentLinkLines.size() > 1) {
+            // upper left, upper right, lower left and lower right corner of each line
+            final float[] quads = new float[8 * currentLinkLines.size()];
+            int i = 0;
+            for (float[] line : currentLinkLines) {
+                quads[i++] = line[0];
+                quads[i++] = line[3];
+                quads[i++] = line[2];
+                quads[i++] = line[3];
+                quads[i++] = line[0];
+                quads[i++] = line[1];
+                quads[i++] = line[2];
+                quads[i++] = line[1];
+            }
+            currentLink.setQuadPoints(quads);
+        }
+    }
+
+    /**
+     * Returns the action of a link target. The URL is resolved against the document base URL
+     * only once for each target.
+     *
+     * @param text - text of the link
+     * @param href - the link target
+     * @return the shared action
+     */
+    private PDActionURI getLinkAction(TextBox text, String href) {
+        PDActionURI actionURI = linkActions.get(href);
+        if (actionURI == null) {
+            URL base = text.getViewport().getFactory().getBaseURL();
+            URL url = null;
+            try {
+                url = new URL(base, href);
+            } catch (MalformedURLException e) {
+            }
+            actionURI = new PDActionURI();
+            actionURI.setURI(url != null ? url.toString() : href);
+            linkActions.put(href, actionURI);
+        }
+        return actionURI;
+    }
+
+    //========================================================================================
+
+    /**
+     * An underline of a text run in the PDF coordinates
+     */
+    private static class Underline {
+        private final Color color;
+        private final float y, height;
+        private float x, width;
+
+        public Underline(Color color, float x, float y, float width, float height) {
+            this.color = color;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
     }
 }
@@ -1,7 +1,5 @@
 package org.fit.cssbox.svgpdf.render;
 
-import cz.vutbr.web.css.CSSProperty;
-import cz.vutbr.web.css.TermList;
 import cz.vutbr.web.csskit.Color;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.font.PDFont;
@@ -22,6 +20,8 @@ import org.w3c.dom.Element;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 
 /**
@@ -39,6 +39,11 @@ public class PDFRenderer extends StructuredRenderer {
 
 
     private BreakAvoidTables breakAvoidTables;
+    private final FilteredImageCache filteredImages = new FilteredImageCache();
+    private final Map<ElementBox, BorderPDF> borders = new IdentityHashMap<>();
+    private final TransformCache transforms = new TransformCache();
+    private final Map<org.w3c.dom.Node, Element> anchors = new IdentityHashMap<>();
+    private final TextStyleCache textStyles = new TextStyleCache();
     private float outputTopPadding;
     private float outputBottomPadding;
 
@@ -96,7 +101,7 @@ public class PDFRenderer extends StructuredRenderer {
             }
         }
 
-        TransformPDF t = new TransformPDF(pdf.getResCoef());
+        TransformPDF t = new TransformPDF(pdf.getResCoef(), transforms);
         Node node = breakAvoidTables.getNodeByElement(elem, breakAvoidTables.getRootNodeOfTree());
 
         try {
@@ -110,7 +115,7 @@ public class PDFRenderer extends StructuredRenderer {
 
     @Override
     public void renderTextContent(TextBox text) {
-        TextClassPDF textClass = new TextClassPDF(text, ((PDFVisualContext) text.getVisualContext()).getFont());
+        TextStyle textStyle = textStyles.get(text, ((PDFVisualContext) text.getVisualContext()).getFont());
 
         ElementBox parent = text.getParent().getParent();
         ElementBox currentNode = text.getParent();
@@ -122,12 +127,12 @@ public class PDFRenderer extends StructuredRenderer {
 
         if (parentRightEndOfElement - recentRightEndOfElement > -widthRecentElem * 0.6) {
             if (!(text.isEmpty() || !text.isVisible() || !text.isDeclaredVisible() || !text.isDisplayed())) {
-                TransformPDF t = new TransformPDF(pdf.getResCoef());
+                TransformPDF t = new TransformPDF(pdf.getResCoef(), transforms);
                 try {
                     t.transformIn(text.getParent(), pdf, node);
                     int actualPage = 0;
                     for (int i = 0; i < pdf.getPageCount(); i++) {
-                        insertText(text, i, node.getPlusOffset(), node.getPlusHeight(), textClass);
+                        insertText(text, i, node.getPlusOffset(), node.getPlusHeight(), textStyle);
                         actualPage = i;
                     }
                     t.transformOut(pdf);
@@ -148,7 +153,8 @@ public class PDFRenderer extends StructuredRenderer {
 
     @Override
     protected void renderBorder(ElementBox elem, Rectangle bb) {
-        final Border border = new BorderPDF(elem.getBorder(), bb, elem, this, breakAvoidTables, pdf);
+        final Node node = breakAvoidTables.getNodeByElement(elem, breakAvoidTables.getRootNodeOfTree());
+        final Border border = getBorder(elem, node, bb);
         try {
             bordersUsed = border.writeBorder(elem, border);
         } catch (IOException e) {
@@ -156,13 +162,33 @@ public class PDFRenderer extends StructuredRenderer {
         }
     }
 
+    /**
+     * Returns the border geometry of an element. The geometry is computed once for the element
+     * and the given bounds; the returned border must not be modified, use {@link BorderPDF#copy()}
+     * for converting the corners to the page coordinates.
+     *
+     * @param elem - the element
+     * @param node - the node of the element providing the style flags or {@code null} when not available
+     * @param bb   - the border bounds
+     * @return the border
+     */
+    private BorderPDF getBorder(ElementBox elem, Node node, Rectangle bb) {
+        BorderPDF border = borders.get(elem);
+        if (border == null || !border.hasBounds(bb)) {
+            final int flags = (node != null) ? node.getStyleFlags() : StyleFlags.computeBorder(elem);
+            border = new BorderPDF(elem.getBorder(), bb, elem, flags, this, breakAvoidTables, pdf);
+            borders.put(elem, border);
+        }
+        return border;
+    }
+
     @Override
     protected void renderColorBg(ElementBox elem, Rectangle bb, BackgroundDecoder bg) {
         Node node = breakAvoidTables.getNodeByElement(elem, breakAvoidTables.getRootNodeOfTree());
         if (node != null) {
             for (int i = 0; i < pdf.getPageCount(); i++) {
                 try {
-                    drawBgToElem(elem, i, node.getPlusOffset(), node.getPlusHeight(), false, false, bb, bg);
+                    drawBgToElem(elem, i, node, false, false, bb, bg);
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
@@ -211,8 +237,8 @@ public class PDFRenderer extends StructuredRenderer {
 
             if (height > 5 * node.getPlusHeight()) height += node.getPlusHeight();
 
-            if (bordersUsed(elem) || clippingUsed(elem)) { // Tady se provede orezani pokud byl pouzit borderraius
-                final Border border = new BorderPDF(elem.getBorder(), bb, elem, this, breakAvoidTables, pdf);
+            if (node.hasStyleFlag(StyleFlags.BORDER) || clippingUsed(elem)) { // Tady se provede orezani pokud byl pouzit borderraius
+                final Border border = getBorder(elem, node, bb).copy();
                 pdf.recalculateYCoordinatesForPDFCorners(border, node, i);
                 pdf.insertClippedImage(border, img, startX, startY, width, height);
             } else {
@@ -223,53 +249,22 @@ public class PDFRenderer extends StructuredRenderer {
     }
 
 
-    /**
-     * Test if actual element has border
-     *
-     * @param elem - the element
-     */
-    private boolean bordersUsed(ElementBox elem) {
-        String sides[] = {"top", "left", "bottom", "right"};
-        for (String side : sides) {
-            if (elem.getStyle().getProperty("border-" + side + "-style") != null) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Test if actual element has border radius
-     *
-     * @param elem - the element
-     */
-    public boolean bordersRadiusUsed(ElementBox elem) {
-        TermList value1 = elem.getStyle().getValue(TermList.class, "border-top-right-radius");
-        TermList value2 = elem.getStyle().getValue(TermList.class, "border-top-left-radius");
-        TermList value3 = elem.getStyle().getValue(TermList.class, "border-bottom-right-radius");
-        TermList value4 = elem.getStyle().getValue(TermList.class, "border-bottom-left-radius");
-        if (value1 != null || value2 != null || value3 != null || value4 != null) {
-            return true;
-        }
-        return false;
-    }
-
-
     /**
      * Draws colored background to OUTPUT
      *
      * @param elem       - the element
      * @param i          - actual page
-     * @param plusOffset - offset due to paging
-     * @param plusHeight - plusHeight due to paging
+     * @param node       - node corresponding with actual element
      * @param radialGrad - true for render radial gradient
      * @param linearGrad - true for render linear gradient
      * @param bb         - the background bounding box
      * @param bg         - source of background
      * @throws IOException
      */
-    private void drawBgToElem(ElementBox elem, int i, float plusOffset, float plusHeight, boolean radialGrad,
+    private void drawBgToElem(ElementBox elem, int i, Node node, boolean radialGrad,
                               boolean linearGrad, Rectangle bb, BackgroundDecoder bg) throws IOException {
+        final float plusOffset = node.getPlusOffset();
+        final float plusHeight = node.getPlusHeight();
         // checks if any color available
         if ((elem.getBgcolor() == null) && (!radialGrad) && (!linearGrad))
             return;
@@ -288,9 +283,8 @@ public class PDFRenderer extends StructuredRenderer {
             float converted_y = (pdf.getPageHeight() - (elem.getAbsoluteContentY())
                     + i * pdf.getPageHeight() - elem.getContentHeight() - plusHeight - plusOffset - elem.getPadding().bottom - elem.getBorder().bottom);
 
-            if (bordersRadiusUsed(elem)) {
-                final Border border = new BorderPDF(elem.getBorder(), bb, elem, this, breakAvoidTables, pdf);
-                Node node = breakAvoidTables.getNodeByElement(elem, breakAvoidTables.getRootNodeOfTree());
+            if (node.hasStyleFlag(StyleFlags.RADIUS)) {
+                final Border border = getBorder(elem, node, bb).copy();
                 pdf.recalculateYCoordinatesForPDFCorners(border, node, i);
                 pdf.insertClippedBackground(border, bg.getBgcolor());
             } else {
@@ -307,7 +301,7 @@ public class PDFRenderer extends StructuredRenderer {
      *
      * @throws IOException
      */
-    private void insertText(TextBox text, int i, float plusOffset, float plusHeight, TextClassPDF textClass) throws IOException {
+    private void insertText(TextBox text, int i, float plusOffset, float plusHeight, TextStyle textStyle) throws IOException {
         // counts the distance between top of the document and the start/end of
         // the page
         float pageStart = i * pdf.getPageHeight();
@@ -325,15 +319,15 @@ public class PDFRenderer extends StructuredRenderer {
 
             // write to PDF
             if (text.getWordSpacing() == null && text.getExtraWidth() == 0) {
-                pdf.addText(startX, startY, text.getText(), textClass.font, textClass.fontSize, textClass.isUnderline.equals("underline"), textClass.boldStyle.equals("bold"), textClass.letterSpacing * pdf.getResCoef(), textClass.fontSize, textClass.color);
+                pdf.addText(startX, startY, text.getText(), text.getContentWidth(), textStyle.getFont(), textStyle.getFontSize(), textStyle.isUnderline(), textStyle.isBold(), textStyle.getLetterSpacing() * pdf.getResCoef(), textStyle.getFontSize(), textStyle.getColor());
             } else {
-                addTextByWords(startX, startY, text, textClass);
+                addTextByWords(startX, startY, text, textStyle);
             }
 
             // render links
-            String href = getLinkURL(text);
-            if (href != null) {
-                pdf.renderLink(text, href, startX, startY, 2f * textClass.fontSize * pdf.getResCoef());
+            Element anchor = getLinkAnchor(text);
+            if (anchor != null) {
+                pdf.renderLink(text, anchor, anchor.getAttribute("href").trim(), startX, startY, 2f * textStyle.getFontSize() * pdf.getResCoef());
             }
         }
     }
@@ -341,43 +335,37 @@ public class PDFRenderer extends StructuredRenderer {
 
     /**
      * Examines the given element and all its parent elements in order to find the "a" element.
+     * The results (including the elements without any anchor) are cached for all the examined
+     * elements.
      *
      * @param e the child element to start with
      * @return the "a" element found or null if it is not present
      */
     private org.w3c.dom.Element findAnchorElement(org.w3c.dom.Element e) {
+        if (anchors.containsKey(e))
+            return anchors.get(e);
         final String href = e.getAttribute("href");
+        final Element anchor;
         if ("a".equalsIgnoreCase(e.getTagName().trim()) && href != null && !href.isEmpty())
-            return e;
+            anchor = e;
         else if (e.getParentNode() != null && e.getParentNode().getNodeType() == org.w3c.dom.Node.ELEMENT_NODE)
-            return findAnchorElement((org.w3c.dom.Element) e.getParentNode());
+            anchor = findAnchorElement((org.w3c.dom.Element) e.getParentNode());
         else
-            return null;
+            anchor = null;
+        anchors.put(e, anchor);
+        return anchor;
     }
 
     /**
-     * Test if actual element has border radius
-     *
-     * @param elem - the element
-     */
-    private String getLinkURL(Element elem) {
-        Element el = findAnchorElement(elem);
-        if (el != null)
-            return el.getAttribute("href").trim();
-        else
-            return null;
-    }
-
-
-    /**
-     * Get URL for hypertext link
+     * Get the anchor element of a hypertext link
      *
      * @param text - element representing text
+     * @return the "a" element or null when the text is not a part of a link
      */
-    private String getLinkURL(TextBox text) {
+    private Element getLinkAnchor(TextBox text) {
         org.w3c.dom.Node parent = text.getNode().getParentNode();
         if (parent != null && parent instanceof Element)
-            return getLinkURL((Element) parent);
+            return findAnchorElement((Element) parent);
         else
             return null;
     }
@@ -389,16 +377,16 @@ public class PDFRenderer extends StructuredRenderer {
      * @param x         - x coordinate
      * @param y         - y coordinate
      * @param text      - element representing text
-     * @param textClass - class which contain information about rendering text (font, color etc.)
+     * @param textStyle - style of the text (font, color etc.)
      */
-    private void addTextByWords(float x, float y, TextBox text, TextClassPDF textClass) throws IOException {
+    private void addTextByWords(float x, float y, TextBox text, TextStyle textStyle) throws IOException {
         final String[] words = text.getText().split(" ");
         if (words.length > 0) {
             final float[][] offsets = text.getWordOffsets(words);
             for (int i = 0; i < words.length; i++)
-                pdf.addText(x + offsets[i][0], y, words[i], textClass.font, textClass.fontSize, textClass.isUnderline.equals("underline"), textClass.boldStyle.equals("bold"), textClass.letterSpacing * pdf.getResCoef(), textClass.fontSize, textClass.color);
+                pdf.addText(x + offsets[i][0], y, words[i], offsets[i][1], textStyle.getFont(), textStyle.getFontSize(), textStyle.isUnderline(), textStyle.isBold(), textStyle.getLetterSpacing() * pdf.getResCoef(), textStyle.getFontSize(), textStyle.getColor());
         } else
-            pdf.addText(x, y, text.getText(), textClass.font, textClass.fontSize, textClass.isUnderline.equals("underline"), textClass.boldStyle.equals("bold"), textClass.letterSpacing * pdf.getResCoef(), textClass.fontSize, textClass.color);
+            pdf.addText(x, y, text.getText(), text.getContentWidth(), textStyle.getFont(), textStyle.getFontSize(), textStyle.isUnderline(), textStyle.isBold(), textStyle.getLetterSpacing() * pdf.getResCoef(), textStyle.getFontSize(), textStyle.getColor());
     }
 
     /**
@@ -409,6 +397,7 @@ public class PDFRenderer extends StructuredRenderer {
      */
     protected void insertReplacedImage(ReplacedBox box, ContentImage img) {
         Rectangle cb = ((Box) box).getAbsoluteContentBounds();
+        BufferedImage img2 = null;
 
         for (int i = 0; i < pdf.getPageCount(); i++) {
             Node node = breakAvoidTables.getNodeByElement(((ElementBox) box), breakAvoidTables.getRootNodeOfTree());
@@ -418,7 +407,7 @@ public class PDFRenderer extends StructuredRenderer {
             float endOfElement = ((ElementBox) box).getAbsoluteContentY() + node.getPlusOffset();
 
             if ((img != null) && (startOfElement > pageStart && startOfElement < pageEnd || endOfElement > pageStart && endOfElement < pageEnd)) {
-                TransformPDF t = new TransformPDF(pdf.getResCoef());
+                TransformPDF t = new TransformPDF(pdf.getResCoef(), transforms);
                 try {
                     t.transformIn(((ElementBox) box), pdf, node);
                     pdf.setCurrentPage(i);
@@ -426,15 +415,9 @@ public class PDFRenderer extends StructuredRenderer {
                     e.printStackTrace();
                 }
 
-                Filter pdfFilter = new Filter(null, 0, 0, 1.0f, 1.0f);
-
-                CSSProperty.Filter filter = ((ElementBox) box).getStyle().getProperty("filter");
-                BufferedImage img2 = ((BitmapImage) img).getBufferedImage();
-
-                if (filter == CSSProperty.Filter.list_values) {
-                    pdfFilter = pdfFilter.createFilter((ElementBox) box);
-                    img2 = pdfFilter.filterImg(img2);
-                }
+                // the image is filtered once for all the pages
+                if (img2 == null)
+                    img2 = getFilteredImage((ElementBox) box, node, ((BitmapImage) img).getBufferedImage());
 
                 float y = cb.y + node.getPlusOffset() + node.getPlusHeight() - i * pdf.getPageHeight();
                 try {
@@ -448,6 +431,23 @@ public class PDFRenderer extends StructuredRenderer {
         }
     }
 
+    /**
+     * Applies the CSS filter of an element to an image. The filtered images are cached so that
+     * the same filter is not applied to the same image repeatedly.
+     *
+     * @param elem - the element
+     * @param node - node corresponding with the element
+     * @param img  - the source image
+     * @return the filtered image or the source image when no filter is used
+     */
+    private BufferedImage getFilteredImage(ElementBox elem, Node node, BufferedImage img) {
+        if (node.hasStyleFlag(StyleFlags.FILTER)) {
+            Filter pdfFilter = new Filter(null, 0, 0, 1.0f, 1.0f).createFilter(elem);
+            return filteredImages.getFilteredImage(img, pdfFilter);
+        }
+        return img;
+    }
+
     /**
      * Check if the element is on the current page
      *
@@ -557,7 +557,7 @@ public class PDFRenderer extends StructuredRenderer {
                 y = (lb.getAbsoluteContentY() + baseline - 0.85f * fontSize * pdf.getResCoefTextConstant() + node.getPlusOffset()) - i * pdf.getPageHeight();
                 try {
                     pdf.setCurrentPage(i);
-                    pdf.addText(x, y, lb.getMarkerText(), font, fontSize, false, isBold, letterSpacing * pdf.getResCoef(), fontSize, ctx.getColor());
+                    pdf.addText(x, y, lb.getMarkerText(), 0, font, fontSize, false, isBold, letterSpacing * pdf.getResCoef(), fontSize, ctx.getColor());
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
@@ -642,7 +642,7 @@ public class PDFRenderer extends StructuredRenderer {
                 //rotate gradient
                 AffineTransform ret = new AffineTransform();
                 ret.scale(1, -1);
-                TransformPDF t = new TransformPDF(pdf.getResCoef());
+                TransformPDF t = new TransformPDF(pdf.getResCoef(), transforms);
                 float[] oxoy = t.getOxOy(elem);
                 oxoy = t.transXYtoPDF(elem, oxoy[0], oxoy[1], node.getPlusOffset(),
                         node.getPlusHeight(), i, (int) pdf.getPageHeight());
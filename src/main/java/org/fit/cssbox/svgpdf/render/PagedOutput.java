@@ -0,0 +1,30 @@
+package org.fit.cssbox.svgpdf.render;
+
+/**
+ * An output divided to pages of a fixed height. It is used by {@link BreakAvoidTables}
+ * for computing the page breaks.
+ */
+public interface PagedOutput {
+
+    /**
+     * Returns the height of a single page in CSSBox units.
+     *
+     * @return the page height
+     */
+    float getPageHeight();
+
+    /**
+     * Returns the height of the whole rendered area including the space inserted by the page breaks.
+     *
+     * @return the rendered area height
+     */
+    float getRootHeight();
+
+    /**
+     * Updates the height of the whole rendered area when a page break has been inserted.
+     *
+     * @param rootHeight the new height
+     */
+    void setRootHeight(float rootHeight);
+
+}
@@ -0,0 +1,79 @@
+package org.fit.cssbox.svgpdf.render;
+
+import org.w3c.dom.Element;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A registry of the shared SVG definitions (gradients, clip paths, etc.). Each definition
+ * is identified by a key that describes its normalized content. A definition with a given key
+ * is emitted to the {@code <defs>} section only once and all its uses refer to the same id.
+ */
+public class SVGDefinitions {
+    private final SVGRenderer renderer;
+    private final Element parent;
+    private final String idPrefix;
+    private Element defs;
+    private final Map<String, String> ids;
+    private int counter;
+
+    /**
+     * Creates a registry whose definitions are placed at the beginning of the given element.
+     *
+     * @param renderer - the renderer used for creating the elements
+     * @param parent   - the element that will contain the {@code <defs>} section
+     * @param idPrefix - a prefix of the generated ids
+     */
+    public SVGDefinitions(SVGRenderer renderer, Element parent, String idPrefix) {
+        this.renderer = renderer;
+        this.parent = parent;
+        this.idPrefix = idPrefix;
+        this.ids = new HashMap<>();
+        this.counter = 1;
+    }
+
+    /**
+     * Finds an already registered definition.
+     *
+     * @param key - the definition key
+     * @return the id of the definition or {@code null} when it has not been registered yet
+     */
+    public String getId(String key) {
+        return ids.get(key);
+    }
+
+    /**
+     * Registers a new definition. The id attribute of the definition element is set
+     * and the element is added to the {@code <defs>} section.
+     *
+     * @param key  - the definition key
+     * @param type - the definition type used in the generated id (e.g. "gradient")
+     * @param def  - the definition element
+     * @return the assigned id
+     */
+    public String add(String key, String type, Element def) {
+        final String id = idPrefix + type + "-" + (counter++);
+        def.setAttribute("id", id);
+        getDefs().appendChild(def);
+        ids.put(key, id);
+        return id;
+    }
+
+    /**
+     * Returns the number of the registered definitions.
+     *
+     * @return the number of definitions
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    private Element getDefs() {
+        if (defs == null) {
+            defs = renderer.createElement("defs");
+            parent.insertBefore(defs, parent.getFirstChild());
+        }
+        return defs;
+    }
+}
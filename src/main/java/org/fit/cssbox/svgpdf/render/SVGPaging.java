@@ -0,0 +1,122 @@
+package org.fit.cssbox.svgpdf.render;
+
+import org.fit.cssbox.layout.Box;
+import org.fit.cssbox.layout.ElementBox;
+import org.fit.cssbox.layout.Rectangle;
+import org.fit.cssbox.layout.Viewport;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pagination of a rendered viewport for the paged SVG output. The page breaks are computed
+ * by {@link BreakAvoidTables} in the same way as for the PDF output. The result may be used
+ * by several {@link SVGRenderer}s, each of them producing a single page.
+ */
+public class SVGPaging implements PagedOutput {
+    final float avoidsSize = 0.8f;
+
+    private final float pageWidth;
+    private final float pageHeight;
+    private float rootHeight;
+    private final BreakAvoidTables breakAvoidTables;
+
+    /**
+     * The nodes of the paged tree indexed by their boxes
+     */
+    private final Map<Box, Node> nodes;
+
+    /**
+     * Computes the pagination of the viewport.
+     *
+     * @param vp         - the viewport with the layout created
+     * @param pageHeight - the page height in CSS pixels
+     */
+    public SVGPaging(Viewport vp, float pageHeight) {
+        if (pageHeight <= 0)
+            throw new IllegalArgumentException("Invalid page height: " + pageHeight);
+        final Rectangle bounds = vp.getClippedContentBounds();
+        this.pageWidth = bounds.width;
+        this.pageHeight = pageHeight;
+        this.rootHeight = bounds.height;
+        this.nodes = new IdentityHashMap<>();
+
+        breakAvoidTables = new BreakAvoidTables(this, bounds.height);
+        breakAvoidTables.createNodesTree(vp);
+        breakAvoidTables.tryToInsertNotInsertedNodes();
+        breakAvoidTables.createBreakAvoidTables();
+        breakAvoidTables.deleteAvoidsBiggerThan(avoidsSize, this);
+        breakAvoidTables.mergeAvoids(avoidsSize, this);
+        breakAvoidTables.makePaging(this);
+
+        final List<Node> open = new ArrayList<>(16);
+        if (breakAvoidTables.getRootNodeOfTree() != null)
+            open.add(breakAvoidTables.getRootNodeOfTree());
+        while (!open.isEmpty()) {
+            final Node node = open.remove(open.size() - 1);
+            if (node.isElem())
+                nodes.put(node.getElem(), node);
+            else if (node.isText())
+                nodes.put(node.getText(), node);
+            if (node.getAllChildren() != null)
+                open.addAll(node.getAllChildren());
+        }
+    }
+
+    public float getPageWidth() {
+        return pageWidth;
+    }
+
+    @Override
+    public float getPageHeight() {
+        return pageHeight;
+    }
+
+    @Override
+    public float getRootHeight() {
+        return rootHeight;
+    }
+
+    @Override
+    public void setRootHeight(float rootHeight) {
+        this.rootHeight = rootHeight;
+    }
+
+    /**
+     * Returns the number of pages necessary for rendering the output.
+     *
+     * @return the number of pages
+     */
+    public int getPageCount() {
+        return Math.max(1, (int) Math.ceil(rootHeight / pageHeight));
+    }
+
+    /**
+     * Finds the node of the paged tree that corresponds to a box.
+     *
+     * @param box - the element or text box
+     * @return the node or {@code null} when the box is not a part of the tree
+     */
+    public Node getNode(Box box) {
+        return nodes.get(box);
+    }
+
+    /**
+     * Checks whether a box is at least partially displayed on the given page.
+     *
+     * @param box  - the box to check
+     * @param node - the corresponding node of the paged tree
+     * @param page - the page index
+     * @return {@code true} when the box span intersects the page
+     */
+    public boolean isOnPage(Box box, Node node, int page) {
+        final Rectangle b = (box instanceof ElementBox) ? ((ElementBox) box).getAbsoluteBorderBounds()
+                : box.getAbsoluteBounds();
+        final float start = b.y + node.getPlusOffset();
+        final float end = start + b.height + node.getPlusHeight();
+        return end >= page * pageHeight && start <= (page + 1) * pageHeight;
+    }
+
+}
@@ -3,15 +3,20 @@ package org.fit.cssbox.svgpdf.render;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import javax.imageio.ImageIO;
 
-import cz.vutbr.web.css.CSSProperty;
 import cz.vutbr.web.csskit.Color;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,6 +64,10 @@ public class SVGRenderer extends StructuredRenderer {
      */
     private Element svgRoot;
     private Stack<Element> elemStack;
+    /**
+     * For each element whose contents are being rendered: was a group pushed to elemStack?
+     */
+    private Stack<Boolean> groupStack;
     private boolean streamResult;
     private Element backgroundStore;
     private Element bgWrap;
@@ -66,6 +75,119 @@ public class SVGRenderer extends StructuredRenderer {
     private boolean bgUsed;
     private boolean bordersUsed;
 
+    /**
+     * Shared gradient and clip path definitions
+     */
+    private SVGDefinitions definitions;
+
+    /**
+     * Clip path of the current element background (relative to bgClipX, bgClipY) or {@code null}
+     */
+    private String bgClipId;
+    private float bgClipX;
+    private float bgClipY;
+
+    /**
+     * Number formatter used for all the coordinates written to the output
+     */
+    private SVGNumberFormat numberFormat;
+
+    /**
+     * Reusable builder of the path data
+     */
+    private SVGPathBuilder pathBuilder;
+
+    /**
+     * The decoded CSS transforms of the elements
+     */
+    private final TransformCache transforms = new TransformCache();
+
+    /**
+     * The style flags of the elements when they are not available from the paging nodes
+     */
+    private final Map<ElementBox, Integer> styleFlags = new IdentityHashMap<>();
+
+    /**
+     * The culled elements: {@code true} when the whole subtree of the element is culled
+     */
+    private final Map<ElementBox, Boolean> culledSubtrees = new IdentityHashMap<>();
+
+    /**
+     * The shared styles of the rendered text
+     */
+    private final TextStyleCache textStyles = new TextStyleCache();
+
+    /**
+     * Indent the output XML
+     */
+    private boolean indent;
+
+    /**
+     * Express the CSS filters as SVG filter definitions instead of filtering the images
+     */
+    private boolean nativeFilters;
+
+    /**
+     * Numbers assigned to the images shared through the definitions
+     */
+    private Map<BufferedImage, Integer> sharedImages;
+
+    /**
+     * Merge the consecutive text boxes into a single text element
+     */
+    private boolean mergeText;
+
+    /**
+     * The currently open merged text element, its parent, baseline and style
+     */
+    private Element runText;
+    private Element runParent;
+    private String runY;
+    private String runStyle;
+
+    /**
+     * The last translated group created for the boxes shifted by a page break, its parent and offset
+     */
+    private Element pageGroup;
+    private Element pageGroupParent;
+    private float pageGroupOffset;
+
+    /**
+     * The number of threads used by the lightweight serializer, 0 for the standard XML transformer
+     */
+    private int serializerThreads;
+    private ExecutorService serializerExecutor;
+
+    /**
+     * Compressed output stream when producing SVGZ, {@code null} otherwise
+     */
+    private SVGZOutputStream svgzOut;
+
+    /**
+     * Pagination used when rendering a single page, {@code null} for the whole document
+     */
+    private SVGPaging paging;
+
+    /**
+     * The rendered page index in the paged mode
+     */
+    private int page;
+
+    /**
+     * The rendered region in CSS pixels, {@code null} for the whole viewport
+     */
+    private Rectangle clipRegion;
+
+    /**
+     * Spatial index used when rendering a single tile, {@code null} otherwise
+     */
+    private SVGTileIndex tileIndex;
+
+    /**
+     * The rendered tile index in the tiled mode
+     */
+    private int tile;
+
     /**
      * @param rootWidth  - width of website
      * @param rootHeight - height of website
@@ -74,13 +196,89 @@ public class SVGRenderer extends StructuredRenderer {
     public SVGRenderer(float rootWidth, float rootHeight, Writer out) {
         super(rootWidth, rootHeight, "SVG");
         elemStack = new Stack<Element>();
+        groupStack = new Stack<Boolean>();
         doc = createDocument();
         idcounter = 1;
         streamResult = true;
+        numberFormat = new SVGNumberFormat();
+        pathBuilder = new SVGPathBuilder(numberFormat);
+        indent = true;
         this.out = new PrintWriter(out);
         writeHeader();
     }
 
+    /**
+     * Creates a renderer that produces a gzip-compressed (SVGZ) output. The indentation
+     * of the output is switched off.
+     *
+     * @param rootWidth        - width of website
+     * @param rootHeight       - height of website
+     * @param out              - output stream; it is finished but not closed by {@link #close()}
+     * @param compressionLevel - gzip compression level (0..9)
+     * @param threads          - number of compression threads, more than one enables the parallel
+     *                         compression of independent blocks
+     * @throws IOException
+     */
+    public SVGRenderer(float rootWidth, float rootHeight, OutputStream out, int compressionLevel, int threads) throws IOException {
+        this(rootWidth, rootHeight, new SVGZOutputStream(out, compressionLevel, threads, SVGZOutputStream.DEFAULT_BLOCK_SIZE));
+    }
+
+    private SVGRenderer(float rootWidth, float rootHeight, SVGZOutputStream svgzOut) {
+        this(rootWidth, rootHeight, new OutputStreamWriter(svgzOut, StandardCharsets.UTF_8));
+        this.svgzOut = svgzOut;
+        this.indent = false;
+    }
+
+    /**
+     * Creates a renderer that produces a single page of a paged output. Only the boxes whose
+     * span intersects the page are rendered; the boxes are shifted according to the page breaks.
+     *
+     * @param paging - the computed pagination of the rendered viewport
+     * @param page   - the page index (starting with 0)
+     * @param out    - output
+     */
+    public SVGRenderer(SVGPaging paging, int page, Writer out) {
+        this(paging.getPageWidth(), paging.getPageHeight(), out);
+        setPage(paging, page);
+    }
+
+    /**
+     * Creates a renderer that produces a single page of a paged output as gzip-compressed (SVGZ) output.
+     *
+     * @param paging           - the computed pagination of the rendered viewport
+     * @param page             - the page index (starting with 0)
+     * @param out              - output stream; it is finished but not closed by {@link #close()}
+     * @param compressionLevel - gzip compression level (0..9)
+     * @param threads          - number of compression threads
+     * @throws IOException
+     */
+    public SVGRenderer(SVGPaging paging, int page, OutputStream out, int compressionLevel, int threads) throws IOException {
+        this(paging.getPageWidth(), paging.getPageHeight(), out, compressionLevel, threads);
+        setPage(paging, page);
+    }
+
+    private void setPage(SVGPaging paging, int page) {
+        this.paging = paging;
+        this.page = page;
+        svgRoot.setAttribute("viewBox", "0 " + fmt(page * paging.getPageHeight()) + " "
+                + fmt(paging.getPageWidth()) + " " + fmt(paging.getPageHeight()));
+    }
+
+    /**
+     * Creates a renderer that produces a single tile of a tiled output. Only the boxes assigned
+     * to the tile by the index are rendered.
+     *
+     * @param tileIndex - the spatial index of the rendered viewport
+     * @param tile      - the tile index
+     * @param out       - output
+     */
+    public SVGRenderer(SVGTileIndex tileIndex, int tile, Writer out) {
+        this(tileIndex.getWidth(), tileIndex.getHeight(), out);
+        this.tileIndex = tileIndex;
+        this.tile = tile;
+        setViewBox(tileIndex.getTileBounds(tile));
+    }
+
     //====================================================================================================
 
     public Element getCurrentElem() {
@@ -91,6 +289,158 @@ public class SVGRenderer extends StructuredRenderer {
         return doc;
     }
 
+    public boolean isIndent() {
+        return indent;
+    }
+
+    /**
+     * Switches the indentation of the output XML on or off.
+     *
+     * @param indent - {@code true} for the indented output
+     */
+    public void setIndent(boolean indent) {
+        this.indent = indent;
+    }
+
+    /**
+     * Returns the registry of the shared definitions (gradients, clip paths and symbols).
+     *
+     * @return the definitions registry
+     */
+    public SVGDefinitions getDefinitions() {
+        return definitions;
+    }
+
+    public Rectangle getClipRegion() {
+        return clipRegion;
+    }
+
+    /**
+     * Restricts the output to a rectangular region of the page. The boxes that lie completely
+     * outside of the region are omitted and the SVG viewBox is set to the region.
+     * It must be called before the viewport is drawn.
+     *
+     * @param region - the region in CSS pixels or {@code null} for the whole viewport
+     */
+    public void setClipRegion(Rectangle region) {
+        if (region != null) {
+            clipRegion = new Rectangle(region.x, region.y, region.width, region.height);
+            setViewBox(region);
+        } else {
+            clipRegion = null;
+            setViewBox(new Rectangle(0, 0, getRootWidth(), getRootHeight()));
+        }
+    }
+
+    /**
+     * Sets the size and the viewBox of the output SVG to the given region.
+     *
+     * @param region - the displayed region
+     */
+    private void setViewBox(Rectangle region) {
+        svgRoot.setAttribute("width", fmt(region.width) + "px");
+        svgRoot.setAttribute("height", fmt(region.height) + "px");
+        svgRoot.setAttribute("viewBox", fmt(region.x) + " " + fmt(region.y) + " "
+                + fmt(region.width) + " " + fmt(region.height));
+    }
+
+    public boolean isNativeFilters() {
+        return nativeFilters;
+    }
+
+    /**
+     * Switches the native SVG filters on or off. When switched on, the CSS filter functions applied
+     * to the replaced images are expressed as SVG {@code <filter>} definitions and the original image
+     * is embedded only once and referenced by all its occurrences of the same size. Both the SVG filters
+     * and the raster filtering follow the formulas of the Filter Effects specification, so the option
+     * does not change the appearance of the images apart from the rounding.
+     *
+     * @param nativeFilters - {@code true} for using the SVG filters
+     */
+    public void setNativeFilters(boolean nativeFilters) {
+        this.nativeFilters = nativeFilters;
+    }
+
+    public boolean isMergeText() {
+        return mergeText;
+    }
+
+    /**
+     * Switches the text merging mode on or off. In this mode, the consecutive text boxes placed
+     * on the same baseline with the same style are rendered as {@code <tspan>} children of a single
+     * {@code <text>} element and the non-standard width and height attributes are omitted.
+     *
+     * @param mergeText - {@code true} for merging the text boxes
+     */
+    public void setMergeText(boolean mergeText) {
+        this.mergeText = mergeText;
+    }
+
+    public int getSerializerThreads() {
+        return serializerThreads;
+    }
+
+    /**
+     * Chooses the way of the output serialization. With a positive number of threads, the lightweight
+     * {@link SVGSerializer} is used and the top-level groups are serialized concurrently when more than
+     * one thread is specified. With 0, the standard XML transformer is used.
+     *
+     * @param threads - the number of serialization threads or 0
+     */
+    public void setSerializerThreads(int threads) {
+        this.serializerThreads = threads;
+    }
+
+    public ExecutorService getSerializerExecutor() {
+        return serializerExecutor;
+    }
+
+    /**
+     * Sets the executor used for the concurrent serialization so that a thread pool may be shared
+     * by multiple renderers. The executor is not shut down by the renderer. When not set, a temporary
+     * pool is created for the serialization.
+     *
+     * @param executor - the executor providing at least {@link #getSerializerThreads()} threads or {@code null}
+     */
+    public void setSerializerExecutor(ExecutorService executor) {
+        this.serializerExecutor = executor;
+    }
+
+    public SVGNumberFormat getNumberFormat() {
+        return numberFormat;
+    }
+
+    /**
+     * Sets the number of decimal places used for the coordinates in the generated SVG.
+     * The header is already written at this point so it keeps the previous precision.
+     *
+     * @param precision the number of decimal places
+     */
+    public void setPrecision(int precision) {
+        numberFormat = new SVGNumberFormat(precision);
+        pathBuilder = new SVGPathBuilder(numberFormat);
+    }
+
+    /**
+     * Returns a reusable path builder that uses the configured precision. The builder is shared
+     * by all the border paths generated by this renderer, so it must be reset before use.
+     *
+     * @return the path builder
+     */
+    public SVGPathBuilder getPathBuilder() {
+        return pathBuilder;
+    }
+
+    /**
+     * Formats a number for an SVG attribute using the configured precision.
+     *
+     * @param value the value to format
+     * @return the formatted value
+     */
+    public String fmt(float value) {
+        return numberFormat.format(value);
+    }
+
     //====================================================================================================
 
     /**
@@ -114,55 +464,211 @@ public class SVGRenderer extends StructuredRenderer {
     private void writeHeader() {
         svgRoot = doc.getDocumentElement();
         elemStack.push(svgRoot);
-        svgRoot.setAttribute("width", Float.toString(getRootWidth()) + "px");
-        svgRoot.setAttribute("height", Float.toString(getRootHeight()) + "px");
-        svgRoot.setAttribute("viewBox", "0 0 " + getRootWidth() + " " + getRootHeight());
+        svgRoot.setAttribute("width", fmt(getRootWidth()) + "px");
+        svgRoot.setAttribute("height", fmt(getRootHeight()) + "px");
+        svgRoot.setAttribute("viewBox", "0 0 " + fmt(getRootWidth()) + " " + fmt(getRootHeight()));
         svgRoot.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns:xlink", xlinkNS);
         svgRoot.appendChild(doc.createComment(" Rendered by CSSBox http://cssbox.sourceforge.net "));
+        definitions = new SVGDefinitions(this, svgRoot, "cssbox-");
     }
 
 
     @Override
     public void startElementContents(ElementBox elem) {
-        final Element g = createElement("g");
-        boolean useGroup = false;
+        // no group is needed when nothing of the subtree is rendered; when some descendants
+        // are rendered (e.g. overflowing or positioned boxes), the group is kept for them
+        if (isCulled(elem) && isSubtreeCulled(elem)) {
+            groupStack.push(false);
+            return;
+        }
+
+        Element g = null;
 
         //transformace napriklad pro replacement content
-        TransformSVG t = new TransformSVG();
-        String tm = t.insertTransformSVG(elem);
-        if (!tm.equals("")) {
-            g.setAttribute("transform", tm);
-            useGroup = true;
+        if (hasStyleFlag(elem, StyleFlags.TRANSFORM)) {
+            TransformSVG t = new TransformSVG(numberFormat, transforms);
+            String tm = t.insertTransformSVG(elem);
+            if (!tm.equals("")) {
+                g = createElement("g");
+                g.setAttribute("transform", tm);
+            }
         }
 
-        String opacity = elem.getStylePropertyValue("opacity");
-        if (!opacity.equals("")) {
-            g.setAttribute("opacity", opacity);
-            useGroup = true;
+        if (hasStyleFlag(elem, StyleFlags.OPACITY)) {
+            if (g == null)
+                g = createElement("g");
+            g.setAttribute("opacity", elem.getStylePropertyValue("opacity"));
         }
 
-        if (useGroup)
+        if (g != null)
             elemStack.push(g);
+        groupStack.push(g != null);
     }
 
     @Override
     public void finishElementContents(ElementBox elem) {
-        if (elemStack.peek() != svgRoot) {
+        if (groupStack.pop()) {
             Element buf = elemStack.pop();
             getCurrentElem().appendChild(buf);
         }
     }
 
+    /**
+     * Checks whether the box is omitted from the output because it lies outside of the clip
+     * region, outside of the rendered tile or outside of the rendered page in the paged mode.
+     *
+     * @param box - the box to check
+     * @return {@code true} when the box lies outside of the rendered area
+     */
+    private boolean isCulled(Box box) {
+        if (tileIndex != null && !tileIndex.contains(tile, box))
+            return true;
+        if (clipRegion != null && !intersectsClipRegion(box))
+            return true;
+        if (paging == null)
+            return false;
+        final Node node = paging.getNode(box);
+        return node != null && !paging.isOnPage(box, node, page);
+    }
+
+    /**
+     * Checks whether a culled element and all its descendants are culled. The results are
+     * computed once for each element.
+     *
+     * @param elem - the culled element
+     * @return {@code true} when no box of the subtree is rendered
+     */
+    private boolean isSubtreeCulled(ElementBox elem) {
+        Boolean culled = culledSubtrees.get(elem);
+        if (culled == null) {
+            culled = true;
+            for (int i = 0; culled && i < elem.getSubBoxNumber(); i++) {
+                final Box child = elem.getSubBox(i);
+                if (!isCulled(child))
+                    culled = false;
+                else if (child instanceof ElementBox)
+                    culled = isSubtreeCulled((ElementBox) child);
+            }
+            culledSubtrees.put(elem, culled);
+        }
+        return culled;
+    }
+
+    /**
+     * Checks whether the box bounds intersect the clip region. The boxes affected by a CSS transform
+     * are always considered to be visible since their final position is not known. In the paged mode,
+     * the bounds are shifted by the page break offsets of the box in the same way as in
+     * {@link SVGPaging#isOnPage(Box, Node, int)}.
+     *
+     * @param box - the box to check
+     * @return {@code true} when the box may be visible in the clip region
+     */
+    private boolean intersectsClipRegion(Box box) {
+        final Rectangle b = (box instanceof ElementBox) ? ((ElementBox) box).getAbsoluteBorderBounds()
+                : box.getAbsoluteBounds();
+        float y = b.y;
+        float height = b.height;
+        if (paging != null) {
+            final Node node = paging.getNode(box);
+            if (node != null) {
+                y += node.getPlusOffset();
+                height += node.getPlusHeight();
+            }
+        }
+        if (b.x + b.width >= clipRegion.x && b.x <= clipRegion.x + clipRegion.width
+                && y + height >= clipRegion.y && y <= clipRegion.y + clipRegion.height)
+            return true;
+        ElementBox e = (box instanceof ElementBox) ? (ElementBox) box : box.getParent();
+        while (e != null) {
+            if (hasStyleFlag(e, StyleFlags.TRANSFORM))
+                return true;
+            e = e.getParent();
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether any of the given style flags is set for an element.
+     *
+     * @param elem  - the element
+     * @param flags - the tested flags, see {@link StyleFlags}
+     * @return {@code true} when any of the flags is set
+     */
+    private boolean hasStyleFlag(ElementBox elem, int flags) {
+        return (getStyleFlags(elem) & flags) != 0;
+    }
+
+    /**
+     * Returns the style flags of an element. The flags are taken from the paging node when available,
+     * otherwise they are computed once for the element.
+     *
+     * @param elem - the element
+     * @return the flags, see {@link StyleFlags}
+     */
+    private int getStyleFlags(ElementBox elem) {
+        if (paging != null) {
+            final Node node = paging.getNode(elem);
+            if (node != null)
+                return node.getStyleFlags();
+        }
+        Integer value = styleFlags.get(elem);
+        if (value == null) {
+            value = StyleFlags.compute(elem);
+            styleFlags.put(elem, value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the element the box content should be added to. In the paged mode, the content of
+     * the boxes shifted by a page break is placed in a translated group. The group is shared by
+     * the consecutive boxes with the same offset as long as nothing else is added to its parent.
+     *
+     * @param box - the rendered box
+     * @return the parent element for the box content
+     */
+    private Element getPageTarget(Box box) {
+        if (paging != null) {
+            final Node node = paging.getNode(box);
+            if (node != null && node.getPlusOffset() != 0) {
+                final Element parent = getCurrentElem();
+                if (pageGroup == null || pageGroupParent != parent || pageGroupOffset != node.getPlusOffset()
+                        || parent.getLastChild() != pageGroup) {
+                    pageGroup = createElement("g");
+                    pageGroup.setAttribute("transform", "translate(0 " + fmt(node.getPlusOffset()) + ")");
+                    parent.appendChild(pageGroup);
+                    pageGroupParent = parent;
+                    pageGroupOffset = node.getPlusOffset();
+                }
+                return pageGroup;
+            }
+        }
+        return getCurrentElem();
+    }
+
     @Override
     public void renderElementBackground(ElementBox elem) {
+        if (isCulled(elem))
+            return;
         bgUsed = false;
+        bgClipId = null;
         backgroundStore = createElement("g");
         backgroundStore.setAttribute("id", "bgstore" + (idcounter++));
         this.bgWrap = createElement("g"); //background wrapper
         super.renderElementBackground(elem);
 
-        if (bgUsed)
-            backgroundStore.appendChild(bgWrap);
+        if (bgUsed) {
+            if (bgClipId != null) {
+                // the shared clip path is relative to the box origin
+                final Element clipWrap = createElement("g");
+                clipWrap.setAttribute("clip-path", "url(#" + bgClipId + ")");
+                clipWrap.setAttribute("transform", "translate(" + fmt(bgClipX) + " " + fmt(bgClipY) + ")");
+                bgWrap.setAttribute("transform", "translate(" + fmt(-bgClipX) + " " + fmt(-bgClipY) + ")");
+                clipWrap.appendChild(bgWrap);
+                backgroundStore.appendChild(clipWrap);
+            } else
+                backgroundStore.appendChild(bgWrap);
+        }
 
         if (bordersUsed)
             backgroundStore.appendChild(gBorder);
@@ -170,32 +676,34 @@ public class SVGRenderer extends StructuredRenderer {
         // append the whole backgound group when something was used
         if (bgUsed) {
             // if transform was used, transform the backgound as well
-            final TransformSVG t = new TransformSVG();
+            final TransformSVG t = new TransformSVG(numberFormat, transforms);
             final String tm = t.insertTransformSVG(elem);
             if (!tm.isEmpty()) {
                 backgroundStore.setAttribute("transform", tm);
             }
 
             // if opacity is applied to the element, make the background opaque as well
-            final String opacity = elem.getStylePropertyValue("opacity");
-            if (!opacity.isEmpty()) {
-                backgroundStore.setAttribute("opacity", opacity);
+            if (hasStyleFlag(elem, StyleFlags.OPACITY)) {
+                backgroundStore.setAttribute("opacity", elem.getStylePropertyValue("opacity"));
             }
 
-            getCurrentElem().appendChild(backgroundStore);
+            getPageTarget(elem).appendChild(backgroundStore);
         }
     }
 
 
     @Override
     public void renderTextContent(TextBox text) {
-        TextClassSVG textClass = new TextClassSVG(text, text.getVisualContext().getFontInfo().getFamily());
+        if (isCulled(text))
+            return;
         Rectangle b = text.getAbsoluteBounds();
-        String textStyle = textClass.createText(text);
-        if (text.getWordSpacing() == null && text.getExtraWidth() == 0) {
-            addText(getCurrentElem(), b.x, b.y + text.getBaselineOffset(), b.width, b.height, textStyle, text.getText());
+        String textStyle = textStyles.get(text, null).getSVGStyle();
+        if (mergeText) {
+            addTextRun(getPageTarget(text), b.x, b.y + text.getBaselineOffset(), textStyle, text);
+        } else if (text.getWordSpacing() == null && text.getExtraWidth() == 0) {
+            addText(getPageTarget(text), b.x, b.y + text.getBaselineOffset(), b.width, b.height, textStyle, text.getText());
         } else {
-            addTextByWords(getCurrentElem(), b.x, b.y + text.getBaselineOffset(), b.width, b.height, textStyle, text);
+            addTextByWords(getPageTarget(text), b.x, b.y + text.getBaselineOffset(), b.width, b.height, textStyle, text);
         }
     }
 
@@ -213,10 +721,10 @@ public class SVGRenderer extends StructuredRenderer {
     private void addText(Element parent, float x, float y, float width, float height, String style, String text) {
         Element txt = doc.createElementNS(svgNS, "text");
         txt.setAttributeNS(XMLConstants.XML_NS_URI, "space", "preserve");
-        txt.setAttribute("x", Float.toString(x));
-        txt.setAttribute("y", Float.toString(y));
-        txt.setAttribute("width", Float.toString(width));
-        txt.setAttribute("height", Float.toString(height));
+        txt.setAttribute("x", fmt(x));
+        txt.setAttribute("y", fmt(y));
+        txt.setAttribute("width", fmt(width));
+        txt.setAttribute("height", fmt(height));
         txt.setAttribute("style", style);
         txt.setTextContent(text);
         parent.appendChild(txt);
@@ -247,22 +755,83 @@ public class SVGRenderer extends StructuredRenderer {
     }
 
 
+    /**
+     * Method for render text in the text merging mode. The text is appended to the current text
+     * element when it is the last element of the parent and it has the same baseline and style.
+     *
+     * @param parent - parent element of text
+     * @param x      - x coordinate
+     * @param y      - y coordinate of the baseline
+     * @param style  - style of text
+     * @param text   - the text box
+     */
+    private void addTextRun(Element parent, float x, float y, String style, TextBox text) {
+        final String ys = fmt(y);
+        if (runText == null || runParent != parent || parent.getLastChild() != runText
+                || !ys.equals(runY) || !style.equals(runStyle)) {
+            runText = doc.createElementNS(svgNS, "text");
+            runText.setAttributeNS(XMLConstants.XML_NS_URI, "space", "preserve");
+            runText.setAttribute("y", ys);
+            runText.setAttribute("style", style);
+            parent.appendChild(runText);
+            runParent = parent;
+            runY = ys;
+            runStyle = style;
+        }
+        if (text.getWordSpacing() == null && text.getExtraWidth() == 0) {
+            addTextSpan(x, text.getText());
+        } else {
+            final String[] words = text.getText().split(" ");
+            final float[][] offsets = text.getWordOffsets(words);
+            for (int i = 0; i < words.length; i++)
+                addTextSpan(x + offsets[i][0], words[i]);
+        }
+    }
+
+    private void addTextSpan(float x, String text) {
+        final Element span = doc.createElementNS(svgNS, "tspan");
+        span.setAttribute("x", fmt(x));
+        span.setTextContent(text);
+        runText.appendChild(span);
+    }
+
     @Override
     public void close() {
         writeFooter();
+        if (svgzOut != null) {
+            out.flush();
+            try {
+                svgzOut.finish();
+            } catch (IOException ex) {
+                Logger.getLogger(SVGRenderer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
     }
 
     /**
      * Method for render output SVG file
      */
     private void writeFooter() {
-        if (streamResult) {
+        if (streamResult && serializerThreads > 0) {
+            try {
+                if (serializerExecutor != null) {
+                    new SVGSerializer(serializerExecutor, serializerThreads, indent).write(doc, out);
+                } else {
+                    try (SVGSerializer serializer = new SVGSerializer(serializerThreads, indent)) {
+                        serializer.write(doc, out);
+                    }
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(SVGRenderer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        } else if (streamResult) {
             try {
                 TransformerFactory tFactory = TransformerFactory.newInstance();
                 Transformer transformer;
                 transformer = tFactory.newTransformer();
 
-                transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+                // the indentation would insert whitespace between the merged text spans
+                transformer.setOutputProperty(OutputKeys.INDENT, (indent && !mergeText) ? "yes" : "no");
 
                 javax.xml.transform.dom.DOMSource source = new javax.xml.transform.dom.DOMSource(doc);
                 StreamResult result = new StreamResult(out);
@@ -283,7 +852,7 @@ public class SVGRenderer extends StructuredRenderer {
         gBorder = createElement("g");
         gBorder.setAttribute("id", "borders-" + (idcounter++));
         elemStack.push(gBorder);
-        final Border border = new BorderSVG(elem.getBorder(), bb, elem, this);
+        final BorderSVG border = new BorderSVG(elem.getBorder(), bb, elem, getStyleFlags(elem), this);
         try {
             bordersUsed = border.writeBorder(elem, border);
         } catch (IOException e) {
@@ -291,14 +860,18 @@ public class SVGRenderer extends StructuredRenderer {
         }
         elemStack.pop();
         if (bordersUsed || clippingUsed(elem)) {
-            final String clipId = "cssbox-clip-" + (idcounter++);
-            final Element clipPath = createElement("clipPath");
-            clipPath.setAttribute("id", clipId);
-            final Element q = border.getClipPathElementForBorder(border);
-            clipPath.appendChild(q);
-            bgWrap.setAttribute("clip-path", "url(#" + clipId + ")");
+            final String d = border.getClipPathData(border, bb.x, bb.y);
+            final String key = "clip:" + d;
+            String clipId = definitions.getId(key);
+            if (clipId == null) {
+                final Element clipPath = createElement("clipPath");
+                clipPath.appendChild(createPath(d, "none", "none", 0));
+                clipId = definitions.add(key, "clip", clipPath);
+            }
+            bgClipId = clipId;
+            bgClipX = bb.x;
+            bgClipY = bb.y;
             bgUsed = true;
-            backgroundStore.appendChild(clipPath);
         }
     }
 
@@ -324,7 +897,7 @@ public class SVGRenderer extends StructuredRenderer {
      * @return color as String
      */
     public String colorString(Color color) {
-        return String.format("#%02x%02x%02x", color.getRed(), color.getGreen(), color.getBlue());
+        return SVGColors.toHex(color);
     }
 
 
@@ -341,7 +914,7 @@ public class SVGRenderer extends StructuredRenderer {
         Element e = createElement("path");
         e.setAttribute("d", dPath);
         e.setAttribute("stroke", stroke);
-        e.setAttribute("stroke-width", Float.toString(strokeWidth));
+        e.setAttribute("stroke-width", fmt(strokeWidth));
         e.setAttribute("fill", fill);
         return e;
     }
@@ -359,10 +932,10 @@ public class SVGRenderer extends StructuredRenderer {
      */
     public Element createRect(float x, float y, float width, float height, String style) {
         Element e = createElement("rect");
-        e.setAttribute("x", Float.toString(x));
-        e.setAttribute("y", Float.toString(y));
-        e.setAttribute("width", Float.toString(width));
-        e.setAttribute("height", Float.toString(height));
+        e.setAttribute("x", fmt(x));
+        e.setAttribute("y", fmt(y));
+        e.setAttribute("width", fmt(width));
+        e.setAttribute("height", fmt(height));
         e.setAttribute("style", style);
         return e;
     }
@@ -396,6 +969,32 @@ public class SVGRenderer extends StructuredRenderer {
         }
     }
 
+    /**
+     * Draw an image that is embedded only once. The image of the given size is defined in the
+     * shared definitions and referenced by a {@code <use>} element.
+     *
+     * @param x      - x coordinate
+     * @param y      - y coordinate
+     * @param width  - width of image
+     * @param height - height of image
+     * @param img    - the image
+     * @return the element referencing the image
+     */
+    public Element createSharedImage(float x, float y, float width, float height, BufferedImage img) {
+        if (sharedImages == null)
+            sharedImages = new IdentityHashMap<>();
+        Integer num = sharedImages.get(img);
+        if (num == null) {
+            num = sharedImages.size() + 1;
+            sharedImages.put(img, num);
+        }
+        final String key = "image:" + num + " " + fmt(width) + " " + fmt(height);
+        String id = definitions.getId(key);
+        if (id == null)
+            id = definitions.add(key, "image", createImage(0, 0, width, height, img, null));
+        return createUse(id, x, y);
+    }
+
     /**
      * Draw loaded image
      *
@@ -408,10 +1007,10 @@ public class SVGRenderer extends StructuredRenderer {
      */
     public Element createImage(float x, float y, float width, float height, String imgData) {
         Element image = createElement("image");
-        image.setAttribute("x", Float.toString(x));
-        image.setAttribute("y", Float.toString(y));
-        image.setAttribute("width", Float.toString(width));
-        image.setAttribute("height", Float.toString(height));
+        image.setAttribute("x", fmt(x));
+        image.setAttribute("y", fmt(y));
+        image.setAttribute("width", fmt(width));
+        image.setAttribute("height", fmt(height));
         image.setAttributeNS(xlinkNS, "xlink:href", imgData);
         return image;
     }
@@ -429,10 +1028,10 @@ public class SVGRenderer extends StructuredRenderer {
      */
     public Element createImage(float x, float y, float width, float height, String imgData, String style) {
         Element image = createElement("image");
-        image.setAttribute("x", Float.toString(x));
-        image.setAttribute("y", Float.toString(y));
-        image.setAttribute("width", Float.toString(width));
-        image.setAttribute("height", Float.toString(height));
+        image.setAttribute("x", fmt(x));
+        image.setAttribute("y", fmt(y));
+        image.setAttribute("width", fmt(width));
+        image.setAttribute("height", fmt(height));
         image.setAttribute("style", style);
         image.setAttributeNS(xlinkNS, "xlink:href", imgData);
         return image;
@@ -447,114 +1046,174 @@ public class SVGRenderer extends StructuredRenderer {
         return doc.createElementNS(svgNS, elementName);
     }
 
+    /**
+     * Registers a reusable symbol containing the given shapes. The shape coordinates are relative
+     * to the symbol origin. The symbol is not clipped to its viewport.
+     *
+     * @param key    - the key describing the symbol content (shape, size and colors)
+     * @param shapes - the elements forming the symbol
+     * @return the symbol id
+     */
+    public String addSymbol(String key, Element... shapes) {
+        final Element symbol = createElement("symbol");
+        symbol.setAttribute("overflow", "visible");
+        for (Element shape : shapes)
+            symbol.appendChild(shape);
+        return definitions.add(key, "symbol", symbol);
+    }
+
+    /**
+     * Creates a reference to a symbol placed at the given position.
+     *
+     * @param symbolId - the symbol id
+     * @param x        - x coordinate of the symbol origin
+     * @param y        - y coordinate of the symbol origin
+     * @return the created use element
+     */
+    public Element createUse(String symbolId, float x, float y) {
+        final Element use = createElement("use");
+        use.setAttributeNS(xlinkNS, "xlink:href", "#" + symbolId);
+        use.setAttribute("x", fmt(x));
+        use.setAttribute("y", fmt(y));
+        return use;
+    }
+
     @Override
     protected void insertReplacedImage(ReplacedBox box, ContentImage img) {
+        if (isCulled((Box) box))
+            return;
         Rectangle cb = ((Box) box).getAbsoluteContentBounds();
 
         Filter svgFilter = new Filter(null, 0, 0, 1.0f, 1.0f);
         String style = null;
-        CSSProperty.Filter filter = ((ElementBox) box).getStyle().getProperty("filter");
+        final boolean filter = hasStyleFlag((ElementBox) box, StyleFlags.FILTER);
         BufferedImage img2 = ((BitmapImage) img).getBufferedImage();
-        if (filter == CSSProperty.Filter.list_values) {
+        if (nativeFilters) {
+            String filterId = null;
+            if (filter) {
+                svgFilter = svgFilter.createFilter((ElementBox) box);
+                filterId = new FilterSVG(svgFilter, this).insertFilter();
+            }
+            Element image = createSharedImage(cb.x, cb.y, cb.width, cb.height, img2);
+            if (filterId != null)
+                image.setAttribute("filter", "url(#" + filterId + ")");
+            getPageTarget((Box) box).appendChild(image);
+            return;
+        }
+        if (filter) {
             svgFilter = svgFilter.createFilter((ElementBox) box);
             img2 = svgFilter.filterImg(img2);
         }
 
         Element image = createImage(cb.x, cb.y, cb.width, cb.height, img2, style);
-        getCurrentElem().appendChild(image);
+        getPageTarget((Box) box).appendChild(image);
     }
 
 
     @Override
     protected void insertReplacedText(ReplacedBox box) {
+        if (isCulled((Box) box))
+            return;
         final Rectangle cb = ((Box) box).getClippedBounds();
-        final String clip = "cssbox-clip-" + idcounter;
-
-        final Element clipPath = doc.createElementNS(svgNS, "clipPath");
-        clipPath.setAttribute("id", clip);
-        clipPath.appendChild(createRect(cb.x, cb.y, cb.width, cb.height, ""));
-        getCurrentElem().appendChild(clipPath);
+        final String key = "rect:" + fmt(cb.width) + " " + fmt(cb.height);
+        String clip = definitions.getId(key);
+        if (clip == null) {
+            final Element clipPath = doc.createElementNS(svgNS, "clipPath");
+            clipPath.appendChild(createRect(0, 0, cb.width, cb.height, ""));
+            clip = definitions.add(key, "clip", clipPath);
+        }
 
+        // the clip rectangle is shared, so it is placed using a transformation
+        final Element clipWrap = doc.createElementNS(svgNS, "g");
+        clipWrap.setAttribute("clip-path", "url(#" + clip + ")");
+        clipWrap.setAttribute("transform", "translate(" + fmt(cb.x) + " " + fmt(cb.y) + ")");
         final Element g = doc.createElementNS(svgNS, "g");
         g.setAttribute("id", "cssbox-obj-" + (idcounter++));
-        g.setAttribute("clip-path", "url(#" + clip + ")");
-        getCurrentElem().appendChild(g);
+        g.setAttribute("transform", "translate(" + fmt(-cb.x) + " " + fmt(-cb.y) + ")");
+        clipWrap.appendChild(g);
+        getPageTarget((Box) box).appendChild(clipWrap);
     }
 
 
     @Override
     protected void writeCircleBullet(ListItemBox lb, float x, float y, float r, Color color) {
-        String style = "fill:none;fill-opacity:1;stroke:" + colorString(color)
-                + ";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1";
-        //out.println("<circle style=\"" + style + "\" cx=\"" + (x + r / 2) + "\" cy=\"" + (y + r / 2) + "\" r=\"" + (r / 2) + "\" />");
-        Element circle = createElement("circle");
-        circle.setAttribute("cx", Float.toString(x + r / 2));
-        circle.setAttribute("cy", Float.toString(y + r / 2));
-        circle.setAttribute("r", Float.toString(r / 2));
-        circle.setAttribute("style", style);
-        getCurrentElem().appendChild(circle);
+        if (isCulled(lb))
+            return;
+        final String key = "circle:" + fmt(r) + " " + colorString(color);
+        String id = definitions.getId(key);
+        if (id == null) {
+            String style = "fill:none;fill-opacity:1;stroke:" + colorString(color)
+                    + ";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1";
+            Element circle = createElement("circle");
+            circle.setAttribute("cx", fmt(r / 2));
+            circle.setAttribute("cy", fmt(r / 2));
+            circle.setAttribute("r", fmt(r / 2));
+            circle.setAttribute("style", style);
+            id = addSymbol(key, circle);
+        }
+        getPageTarget(lb).appendChild(createUse(id, x, y));
     }
 
     @Override
     protected void writeSquareBullet(ListItemBox lb, float x, float y, float r, Color color) {
+        if (isCulled(lb))
+            return;
         String tclr = colorString(color);
-        String style = "fill:" + tclr + ";fill-opacity:1;stroke:" + tclr
-                + ";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1";
-        //out.println("<rect style=\"" + style + "\" x=\"" + x + "\" y=\"" + y + "\" width=\"" + r + "\" height=\"" + r + "\" />");
-        Element rect = createElement("rect");
-        rect.setAttribute("x", Float.toString(x));
-        rect.setAttribute("y", Float.toString(y));
-        rect.setAttribute("width", Float.toString(r));
-        rect.setAttribute("height", Float.toString(r));
-        rect.setAttribute("style", style);
-        getCurrentElem().appendChild(rect);
+        final String key = "square:" + fmt(r) + " " + tclr;
+        String id = definitions.getId(key);
+        if (id == null) {
+            String style = "fill:" + tclr + ";fill-opacity:1;stroke:" + tclr
+                    + ";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1";
+            Element rect = createElement("rect");
+            rect.setAttribute("x", "0");
+            rect.setAttribute("y", "0");
+            rect.setAttribute("width", fmt(r));
+            rect.setAttribute("height", fmt(r));
+            rect.setAttribute("style", style);
+            id = addSymbol(key, rect);
+        }
+        getPageTarget(lb).appendChild(createUse(id, x, y));
     }
 
     @Override
     protected void writeDiscBullet(ListItemBox lb, float x, float y, float r, Color color) {
+        if (isCulled(lb))
+            return;
         String tclr = colorString(color);
-        String style = "fill:" + tclr + ";fill-opacity:1;stroke:" + tclr
-                + ";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1";
-        //out.println("<circle style=\"" + style + "\" cx=\"" + (x + r / 2) + "\" cy=\"" + (y + r / 2) + "\" r=\"" + (r / 2) + "\" />");
-        Element disc = createElement("circle");
-        disc.setAttribute("cx", Float.toString(x + r / 2));
-        disc.setAttribute("cy", Float.toString(y + r / 2));
-        disc.setAttribute("r", Float.toString(r / 2));
-        disc.setAttribute("style", style);
-        getCurrentElem().appendChild(disc);
+        final String key = "disc:" + fmt(r) + " " + tclr;
+        String id = definitions.getId(key);
+        if (id == null) {
+            String style = "fill:" + tclr + ";fill-opacity:1;stroke:" + tclr
+                    + ";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1";
+            Element disc = createElement("circle");
+            disc.setAttribute("cx", fmt(r / 2));
+            disc.setAttribute("cy", fmt(r / 2));
+            disc.setAttribute("r", fmt(r / 2));
+            disc.setAttribute("style", style);
+            id = addSymbol(key, disc);
+        }
+        getPageTarget(lb).appendChild(createUse(id, x, y));
     }
 
 
     @Override
     public void writeOtherBullet(ListItemBox lb, float x, float y) {
+        if (isCulled(lb))
+            return;
         float baseline = lb.getFirstInlineBoxBaseline();
         VisualContext ctx = lb.getVisualContext();
         if (baseline == -1) baseline = ctx.getBaselineOffset(); //use the font baseline
-        String style = textStyle(ctx) + ";text-align:end;text-anchor:end";
-        addText(getCurrentElem(), lb.getAbsoluteContentX() - 0.5f * ctx.getEm(), lb.getAbsoluteContentY() + baseline, lb.getWidth(), lb.getHeight(), style, lb.getMarkerText());
-    }
-
-    /**
-     * Method for set text style for PDF
-     *
-     * @param ctx - data of style of text
-     * @return String which represent style of text for PDFBox
-     */
-    private String textStyle(VisualContext ctx) {
-        String style = "font-size:" + ctx.getFontSize() + "pt;" + "font-weight:"
-                + (ctx.getFontInfo().isBold() ? "bold" : "normal") + ";" + "font-style:"
-                + (ctx.getFontInfo().isItalic() ? "italic" : "normal") + ";" + "font-family:" + ctx.getFontInfo().getFamily()
-                + ";" + "fill:" + colorString(ctx.getColor()) + ";" + "stroke:none";
-        if (ctx.getLetterSpacing() > 0.0001)
-            style += ";letter-spacing:" + ctx.getLetterSpacing() + "px";
-        return style;
+        String style = textStyles.get(ctx, 0, null).getSVGStyle() + ";text-align:end;text-anchor:end";
+        addText(getPageTarget(lb), lb.getAbsoluteContentX() - 0.5f * ctx.getEm(), lb.getAbsoluteContentY() + baseline, lb.getWidth(), lb.getHeight(), style, lb.getMarkerText());
     }
 
 
     @Override
     protected void createImageBullet(ListItemBox lb, float ix, float iy, float iw, float ih, ContentImage img) {
+        if (isCulled(lb))
+            return;
         Element image = createImage(ix, iy, iw, ih, ((BitmapImage) img).getBufferedImage(), null);
-        getCurrentElem().appendChild(image);
+        getPageTarget(lb).appendChild(image);
     }
 
 
@@ -565,8 +1224,7 @@ public class SVGRenderer extends StructuredRenderer {
         bgsize.x = absx;
         bgsize.y = absy;
 
-        final String url = "cssbox-gradient-" + (idcounter++);
-        final Element defs = createElement("defs");
+        // the gradient coordinates are relative to the background origin so that it may be shared
         final Element image = createElement("radialGradient");
         image.setAttribute("gradientUnits", "userSpaceOnUse");
         if (grad.isRepeating())
@@ -576,30 +1234,21 @@ public class SVGRenderer extends StructuredRenderer {
             // scale Y to achieve desired radius ratio
             if (grad.getRx() > 0)
                 scaleY = grad.getRy() / grad.getRx();
-            image.setAttribute("gradientTransform", "scale(1," + scaleY + ") ");
-        }
-        image.setAttribute("r", String.valueOf(grad.getEfficientRx()));
-        image.setAttribute("cx", String.valueOf(grad.getCx() + bgsize.x));
-        image.setAttribute("cy", String.valueOf((grad.getCy() + bgsize.y) / scaleY));
-        image.setAttribute("id", url);
-        for (int i = 0; i < grad.getStops().size(); i++) {
-            Element stop = createElement("stop");
-            Color cc = grad.getStops().get(i).getColor();
-            stop.setAttribute("offset", "" + grad.getStops().get(i).getPercentage() + "%");
-            stop.setAttribute("style",
-                    "stop-color:rgb(" + cc.getRed() + "," + cc.getGreen() + "," + cc.getBlue() +
-                            ");stop-opacity:" + (cc.getAlpha() / 255.0f));
-            image.appendChild(stop);
+            image.setAttribute("gradientTransform", "scale(1," + fmt(scaleY) + ") ");
         }
+        image.setAttribute("r", fmt(grad.getEfficientRx()));
+        image.setAttribute("cx", fmt(grad.getCx()));
+        image.setAttribute("cy", fmt(grad.getCy() / scaleY));
 
-        defs.appendChild(image);
-        bgWrap.appendChild(defs);
-
-        String style = "stroke:none;fill-opacity:1;fill:url(#" + url + ");";
+        final StringBuilder key = new StringBuilder("radial:");
+        key.append(grad.isRepeating()).append(' ').append(image.getAttribute("gradientTransform"))
+                .append(' ').append(image.getAttribute("r"))
+                .append(' ').append(image.getAttribute("cx"))
+                .append(' ').append(image.getAttribute("cy"));
+        final String url = addGradientDefinition(image, grad, key);
 
         // generate the background element
-        bgWrap.appendChild(createRect(bgsize.x, bgsize.y, bgsize.width, bgsize.height, style));
-        bgUsed = true;
+        addGradientRect(bgsize, url);
     }
 
     @Override
@@ -608,38 +1257,66 @@ public class SVGRenderer extends StructuredRenderer {
         Rectangle bgsize = bgimage.getComputedPosition();
         bgsize.x = absx;
         bgsize.y = absy;
-        // generate code
-        String url = "cssbox-gradient-" + idcounter;
-        idcounter++;
-        // generate svg gradient incl. stops
-        Element defs = createElement("defs");
+        // generate svg gradient relative to the background origin
         Element image;
         image = createElement("linearGradient");
         image.setAttribute("gradientUnits", "userSpaceOnUse");
         if (grad.isRepeating())
             image.setAttribute("spreadMethod", "repeat");
-        image.setAttribute("x1", String.valueOf(grad.getX1() + bgsize.x));
-        image.setAttribute("y1", String.valueOf(grad.getY1() + bgsize.y));
-        image.setAttribute("x2", String.valueOf(grad.getEfficientX2() + bgsize.x));
-        image.setAttribute("y2", String.valueOf(grad.getEfficientY2() + bgsize.y));
-        image.setAttribute("id", url);
+        image.setAttribute("x1", fmt(grad.getX1()));
+        image.setAttribute("y1", fmt(grad.getY1()));
+        image.setAttribute("x2", fmt(grad.getEfficientX2()));
+        image.setAttribute("y2", fmt(grad.getEfficientY2()));
+
+        final StringBuilder key = new StringBuilder("linear:");
+        key.append(grad.isRepeating())
+                .append(' ').append(image.getAttribute("x1"))
+                .append(' ').append(image.getAttribute("y1"))
+                .append(' ').append(image.getAttribute("x2"))
+                .append(' ').append(image.getAttribute("y2"));
+        final String url = addGradientDefinition(image, grad, key);
+
+        // generate the element with the gradient background
+        addGradientRect(bgsize, url);
+    }
+
+    /**
+     * Adds the color stops to a gradient definition and registers it. When the same gradient
+     * has been already registered, the existing definition is used instead.
+     *
+     * @param image - the gradient element with the geometry attributes set
+     * @param grad  - the gradient
+     * @param key   - the key describing the gradient geometry; the stops are appended to it
+     * @return the id of the gradient definition
+     */
+    private String addGradientDefinition(Element image, Gradient grad, StringBuilder key) {
         for (int i = 0; i < grad.getStops().size(); i++) {
-            Element stop = createElement("stop");
             Color cc = grad.getStops().get(i).getColor();
-            stop.setAttribute("offset", "" + grad.getStops().get(i).getPercentage() + "%");
-            stop.setAttribute("style",
-                    "stop-color:rgb(" + cc.getRed() + "," + cc.getGreen() + "," + cc.getBlue() +
-                            ");stop-opacity:" + (cc.getAlpha() / 255.0f));
+            final String offset = fmt(grad.getStops().get(i).getPercentage()) + "%";
+            final String style = "stop-color:" + colorString(cc) + ";stop-opacity:" + fmt(cc.getAlpha() / 255.0f);
+            key.append('|').append(offset).append(' ').append(style);
+            Element stop = createElement("stop");
+            stop.setAttribute("offset", offset);
+            stop.setAttribute("style", style);
             image.appendChild(stop);
         }
+        final String k = key.toString();
+        final String id = definitions.getId(k);
+        return (id != null) ? id : definitions.add(k, "gradient", image);
+    }
 
-        defs.appendChild(image);
-        bgWrap.appendChild(defs);
-
+    /**
+     * Creates the rectangle filled with a gradient. The rectangle is translated to its position
+     * so that its user space matches the gradient coordinates.
+     *
+     * @param bgsize - the background position and size
+     * @param url    - the gradient id
+     */
+    private void addGradientRect(Rectangle bgsize, String url) {
         String style = "stroke:none;fill-opacity:1;fill:url(#" + url + ");";
-
-        // generate the element with the gradient background
-        bgWrap.appendChild(createRect(bgsize.x, bgsize.y, bgsize.width, bgsize.height, style));
+        final Element rect = createRect(0, 0, bgsize.width, bgsize.height, style);
+        rect.setAttribute("transform", "translate(" + fmt(bgsize.x) + " " + fmt(bgsize.y) + ")");
+        bgWrap.appendChild(rect);
         bgUsed = true;
     }
 }
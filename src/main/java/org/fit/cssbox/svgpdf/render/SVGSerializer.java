@@ -0,0 +1,294 @@
+package org.fit.cssbox.svgpdf.render;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A lightweight serializer of the generated SVG DOM. It supports the subset of DOM used by
+ * {@link SVGRenderer} (elements, attributes, text and comments).
+ * <p>
+ * With more threads, the children of the root element are split to chunks that are serialized
+ * concurrently to separate buffers and written to the output in the original order. Each chunk
+ * is a separate subtree, so the threads never access the same DOM nodes. The document must not
+ * be modified during the serialization. The threads are taken from an executor supplied by the caller
+ * or from a pool owned by the serializer which is created on the first parallel write, reused by
+ * the subsequent writes and shut down by {@link #close()}.
+ */
+public class SVGSerializer implements Closeable {
+    /**
+     * The number of chunks created for each thread for balancing the load
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The size of the buffered output that is passed to the writer during the sequential serialization
+     */
+    private static final int FLUSH_SIZE = 1 << 16;
+
+    private final int threads;
+    private final boolean indent;
+    private ExecutorService executor;
+    private final boolean ownExecutor;
+
+    /**
+     * Creates a serializer. With more than one thread, the serializer creates its own thread pool
+     * that must be released by {@link #close()}.
+     *
+     * @param threads - the number of threads, 1 for the sequential serialization
+     * @param indent  - {@code true} for the indented output
+     */
+    public SVGSerializer(int threads, boolean indent) {
+        this.threads = Math.max(1, threads);
+        this.indent = indent;
+        this.ownExecutor = true;
+    }
+
+    /**
+     * Creates a serializer that runs the parallel serialization using the given executor.
+     * The executor is not shut down by the serializer.
+     *
+     * @param executor - the executor used for serializing the chunks
+     * @param threads  - the number of threads available in the executor, 1 for the sequential serialization
+     * @param indent   - {@code true} for the indented output
+     */
+    public SVGSerializer(ExecutorService executor, int threads, boolean indent) {
+        this.threads = Math.max(1, threads);
+        this.indent = indent;
+        this.executor = executor;
+        this.ownExecutor = false;
+    }
+
+    /**
+     * Shuts down the thread pool created by the serializer, if any.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor && executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Serializes the document to the output writer. The writer is not closed.
+     *
+     * @param doc - the document to serialize
+     * @param out - the output writer
+     * @throws IOException
+     */
+    public void write(Document doc, Writer out) throws IOException {
+        final Element root = doc.getDocumentElement();
+        final List<Node> children = new ArrayList<>();
+        for (Node n = root.getFirstChild(); n != null; n = n.getNextSibling())
+            children.add(n);
+
+        final StringBuilder head = new StringBuilder(256);
+        head.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        if (indent)
+            head.append('\n');
+        if (children.isEmpty()) {
+            writeStartTag(head, root, true);
+            head.append("/>");
+            out.write(head.toString());
+            out.flush();
+            return;
+        }
+        writeStartTag(head, root, true);
+        head.append('>');
+        out.write(head.toString());
+
+        final boolean indentChildren = indent && !hasText(root);
+        if (threads == 1) {
+            final StringBuilder buf = new StringBuilder(FLUSH_SIZE);
+            for (Node child : children) {
+                writeChild(buf, child, 1, indentChildren);
+                if (buf.length() >= FLUSH_SIZE) {
+                    out.append(buf);
+                    buf.setLength(0);
+                }
+            }
+            out.append(buf);
+        } else {
+            writeParallel(children, indentChildren, out);
+        }
+
+        final StringBuilder tail = new StringBuilder(16);
+        if (indentChildren)
+            tail.append('\n');
+        tail.append("</").append(root.getNodeName()).append(">\n");
+        out.write(tail.toString());
+        out.flush();
+    }
+
+    //================================================================================
+
+    private void writeParallel(List<Node> children, boolean indentChildren, Writer out) throws IOException {
+        final int chunkSize = Math.max(1, (children.size() + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD));
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "svg-serializer");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        final Queue<Future<String>> pending = new ArrayDeque<>();
+        try {
+            for (int start = 0; start < children.size(); start += chunkSize) {
+                final List<Node> chunk = children.subList(start, Math.min(children.size(), start + chunkSize));
+                pending.add(executor.submit(() -> {
+                    final StringBuilder buf = new StringBuilder(256 * chunk.size());
+                    for (Node child : chunk)
+                        writeChild(buf, child, 1, indentChildren);
+                    return buf.toString();
+                }));
+                // limit the number of the serialized chunks kept in memory
+                while (pending.size() >= 2 * threads)
+                    out.write(pending.remove().get());
+            }
+            while (!pending.isEmpty())
+                out.write(pending.remove().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while serializing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Serialization failed", e.getCause());
+        } finally {
+            // do not leave the remaining chunks running after a failure
+            for (Future<String> f : pending)
+                f.cancel(true);
+        }
+    }
+
+    private void writeChild(StringBuilder buf, Node node, int depth, boolean indentNode) {
+        if (indentNode) {
+            buf.append('\n');
+            for (int i = 0; i < depth; i++)
+                buf.append("  ");
+        }
+        writeNode(buf, node, depth);
+    }
+
+    private void writeNode(StringBuilder buf, Node node, int depth) {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                final Element elem = (Element) node;
+                writeStartTag(buf, elem, false);
+                if (elem.getFirstChild() == null) {
+                    buf.append("/>");
+                } else {
+                    buf.append('>');
+                    final boolean indentChildren = indent && !hasText(elem);
+                    for (Node n = elem.getFirstChild(); n != null; n = n.getNextSibling())
+                        writeChild(buf, n, depth + 1, indentChildren);
+                    if (indentChildren) {
+                        buf.append('\n');
+                        for (int i = 0; i < depth; i++)
+                            buf.append("  ");
+                    }
+                    buf.append("</").append(elem.getNodeName()).append('>');
+                }
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                escape(buf, node.getNodeValue(), false);
+                break;
+            case Node.COMMENT_NODE:
+                buf.append("<!--").append(node.getNodeValue()).append("-->");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void writeStartTag(StringBuilder buf, Element elem, boolean root) {
+        buf.append('<').append(elem.getNodeName());
+        if (root && elem.getNamespaceURI() != null && !elem.hasAttribute("xmlns"))
+            appendAttribute(buf, "xmlns", elem.getNamespaceURI());
+        final NamedNodeMap attrs = elem.getAttributes();
+        for (int i = 0; i < attrs.getLength(); i++) {
+            final Attr attr = (Attr) attrs.item(i);
+            String name = attr.getName();
+            if (XMLConstants.XML_NS_URI.equals(attr.getNamespaceURI()) && attr.getPrefix() == null)
+                name = "xml:" + attr.getLocalName();
+            appendAttribute(buf, name, attr.getValue());
+        }
+    }
+
+    private static void appendAttribute(StringBuilder buf, String name, String value) {
+        buf.append(' ').append(name).append("=\"");
+        escape(buf, value, true);
+        buf.append('"');
+    }
+
+    /**
+     * Checks whether the element contains text or preserves whitespace so that it must not be indented.
+     */
+    private static boolean hasText(Element elem) {
+        if ("preserve".equals(elem.getAttributeNS(XMLConstants.XML_NS_URI, "space")))
+            return true;
+        for (Node n = elem.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() == Node.TEXT_NODE || n.getNodeType() == Node.CDATA_SECTION_NODE)
+                return true;
+        }
+        return false;
+    }
+
+    private static void escape(StringBuilder buf, String text, boolean attribute) {
+        if (text == null)
+            return;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    buf.append("&amp;");
+                    break;
+                case '<':
+                    buf.append("&lt;");
+                    break;
+                case '>':
+                    buf.append("&gt;");
+                    break;
+                case '"':
+                    if (attribute)
+                        buf.append("&quot;");
+                    else
+                        buf.append(c);
+                    break;
+                case '\n':
+                    if (attribute)
+                        buf.append("&#10;");
+                    else
+                        buf.append(c);
+                    break;
+                case '\r':
+                    buf.append("&#13;");
+                    break;
+                case '\t':
+                    if (attribute)
+                        buf.append("&#9;");
+                    else
+                        buf.append(c);
+                    break;
+                default:
+                    buf.append(c);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package org.fit.cssbox.svgpdf.render;
+
+import cz.vutbr.web.css.CSSProperty;
+import org.fit.cssbox.layout.Box;
+import org.fit.cssbox.layout.ElementBox;
+import org.fit.cssbox.layout.Rectangle;
+import org.fit.cssbox.layout.Viewport;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * A spatial index of the boxes of a viewport divided to a grid of fixed-size tiles. The box tree
+ * is traversed once and each box is assigned to all the tiles its bounds intersect. The index
+ * is read-only after its creation so that it may be shared by the renderers of different tiles.
+ */
+public class SVGTileIndex {
+    private final float width;
+    private final float height;
+    private final float tileWidth;
+    private final float tileHeight;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * The boxes intersecting the individual tiles
+     */
+    private final Set<Box>[] tiles;
+
+    /**
+     * Creates the index for the given viewport.
+     *
+     * @param vp         - the viewport with the layout created
+     * @param tileWidth  - tile width in CSS pixels
+     * @param tileHeight - tile height in CSS pixels
+     */
+    @SuppressWarnings("unchecked")
+    public SVGTileIndex(Viewport vp, float tileWidth, float tileHeight) {
+        if (tileWidth <= 0 || tileHeight <= 0)
+            throw new IllegalArgumentException("Invalid tile size: " + tileWidth + "x" + tileHeight);
+        final Rectangle bounds = vp.getClippedContentBounds();
+        this.width = bounds.width;
+        this.height = bounds.height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.columns = Math.max(1, (int) Math.ceil(width / tileWidth));
+        this.rows = Math.max(1, (int) Math.ceil(height / tileHeight));
+        this.tiles = new Set[columns * rows];
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = Collections.newSetFromMap(new IdentityHashMap<Box, Boolean>());
+        insertBox(vp, false);
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getTileCount() {
+        return tiles.length;
+    }
+
+    /**
+     * Computes the bounds of a tile. The tiles on the right and bottom edge are cropped
+     * to the viewport size.
+     *
+     * @param tile - the tile index (row * columns + column)
+     * @return the tile bounds in CSS pixels
+     */
+    public Rectangle getTileBounds(int tile) {
+        final float x = (tile % columns) * tileWidth;
+        final float y = (tile / columns) * tileHeight;
+        return new Rectangle(x, y, Math.min(tileWidth, width - x), Math.min(tileHeight, height - y));
+    }
+
+    /**
+     * Checks whether a box may be visible in the given tile.
+     *
+     * @param tile - the tile index
+     * @param box  - the box to check
+     * @return {@code true} when the box intersects the tile
+     */
+    public boolean contains(int tile, Box box) {
+        return tiles[tile].contains(box);
+    }
+
+    /**
+     * Returns the number of boxes assigned to a tile.
+     *
+     * @param tile - the tile index
+     * @return the number of boxes
+     */
+    public int getBoxCount(int tile) {
+        return tiles[tile].size();
+    }
+
+    //================================================================================
+
+    /**
+     * Inserts a box and its descendants to the index.
+     *
+     * @param box         - the box to insert
+     * @param transformed - {@code true} when the box is affected by a CSS transform, then its final
+     *                    position is not known and it is assigned to all the tiles
+     */
+    private void insertBox(Box box, boolean transformed) {
+        if (box instanceof ElementBox) {
+            final ElementBox elem = (ElementBox) box;
+            if (elem.getStyle() != null && elem.getStyle().getProperty("transform") == CSSProperty.Transform.list_values)
+                transformed = true;
+            insertBounds(box, elem.getAbsoluteBorderBounds(), transformed);
+            for (int i = 0; i < elem.getSubBoxNumber(); i++)
+                insertBox(elem.getSubBox(i), transformed);
+        } else {
+            insertBounds(box, box.getAbsoluteBounds(), transformed);
+        }
+    }
+
+    private void insertBounds(Box box, Rectangle b, boolean transformed) {
+        final int c1, c2, r1, r2;
+        if (transformed) {
+            c1 = 0;
+            r1 = 0;
+            c2 = columns - 1;
+            r2 = rows - 1;
+        } else {
+            c1 = clamp((int) Math.floor(b.x / tileWidth), columns);
+            c2 = clamp((int) Math.floor((b.x + b.width) / tileWidth), columns);
+            r1 = clamp((int) Math.floor(b.y / tileHeight), rows);
+            r2 = clamp((int) Math.floor((b.y + b.height) / tileHeight), rows);
+        }
+        for (int r = r1; r <= r2; r++)
+            for (int c = c1; c <= c2; c++)
+                tiles[r * columns + c].add(box);
+    }
+
+    private static int clamp(int value, int count) {
+        return Math.max(0, Math.min(count - 1, value));
+    }
+
+}
@@ -0,0 +1,194 @@
+package org.fit.cssbox.svgpdf.render;
+
+import org.fit.cssbox.layout.Rectangle;
+import org.fit.cssbox.layout.Viewport;
+import org.fit.cssbox.svgpdf.layout.SVGNumberFormat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports a viewport as a grid of SVG tiles. The spatial index of the boxes is built once
+ * and the individual tiles are rendered one after another, each of them by its own {@link SVGRenderer}.
+ * A manifest JSON file lists the tile files and their bounds so that a viewer may load
+ * the tiles on demand.
+ * <p>
+ * The tiles are drawn sequentially in the calling thread: drawing the viewport accesses
+ * the shared box tree and the source DOM which are not thread-safe. The boxes outside of
+ * a tile are culled by the index so each tile only emits its own boxes. The serialization
+ * of the finished tile documents and writing the files may run in parallel since each
+ * tile has its own output document that is not accessed by the drawing thread any more.
+ */
+public class SVGTiledExport {
+    /**
+     * The manifest file name
+     */
+    public static final String MANIFEST = "manifest.json";
+
+    private final Viewport vp;
+    private final SVGTileIndex index;
+
+    /**
+     * Creates the export and builds the spatial index of the viewport.
+     *
+     * @param vp         - the viewport with the layout created
+     * @param tileWidth  - tile width in CSS pixels
+     * @param tileHeight - tile height in CSS pixels
+     */
+    public SVGTiledExport(Viewport vp, float tileWidth, float tileHeight) {
+        this.vp = vp;
+        this.index = new SVGTileIndex(vp, tileWidth, tileHeight);
+    }
+
+    public SVGTileIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the file name used for a tile.
+     *
+     * @param tile - the tile index
+     * @return the file name
+     */
+    public String getTileFileName(int tile) {
+        return "tile-" + (tile / index.getColumns()) + "-" + (tile % index.getColumns()) + ".svg";
+    }
+
+    /**
+     * Renders all the tiles to the given directory and writes the manifest. The directory
+     * is created when it does not exist.
+     *
+     * @param dir     - the output directory
+     * @param threads - the number of threads serializing and writing the drawn tiles,
+     *                1 for writing each tile in the calling thread
+     * @return the manifest file
+     * @throws IOException
+     */
+    public File export(File dir, int threads) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create the output directory " + dir);
+
+        if (threads <= 1) {
+            for (int i = 0; i < index.getTileCount(); i++)
+                writeTile(i, new File(dir, getTileFileName(i)));
+        } else {
+            writeTilesParallel(dir, threads);
+        }
+
+        final File manifest = new File(dir, MANIFEST);
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(manifest), StandardCharsets.UTF_8)) {
+            w.write(createManifest());
+        }
+        return manifest;
+    }
+
+    /**
+     * Draws the tiles one after another and passes the drawn tiles to a pool of threads that
+     * serialize them to the files. The number of the drawn tiles waiting for the serialization
+     * is limited so that only a few tile documents are kept in memory.
+     *
+     * @param dir     - the output directory
+     * @param threads - the number of writing threads
+     * @throws IOException
+     */
+    private void writeTilesParallel(File dir, int threads) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "svg-tile-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        final Queue<Future<?>> pending = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < index.getTileCount(); i++) {
+                final Writer w = new OutputStreamWriter(new FileOutputStream(new File(dir, getTileFileName(i))), StandardCharsets.UTF_8);
+                final SVGRenderer render;
+                try {
+                    render = new SVGRenderer(index, i, w);
+                    vp.draw(render);
+                } catch (RuntimeException e) {
+                    w.close();
+                    throw e;
+                }
+                // the tile document is only accessed by the writing thread from now on
+                pending.add(executor.submit(() -> {
+                    try (Writer out = w) {
+                        render.close();
+                    }
+                    return null;
+                }));
+                while (pending.size() >= 2 * threads)
+                    pending.remove().get();
+            }
+            while (!pending.isEmpty())
+                pending.remove().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the tiles", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Writing a tile failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders a single tile to a file.
+     *
+     * @param tile - the tile index
+     * @param file - the output file
+     * @throws IOException
+     */
+    public void writeTile(int tile, File file) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            final SVGRenderer render = new SVGRenderer(index, tile, w);
+            vp.draw(render);
+            render.close();
+        }
+    }
+
+    /**
+     * Creates the manifest JSON describing the tile grid.
+     *
+     * @return the manifest contents
+     */
+    public String createManifest() {
+        final SVGNumberFormat nf = new SVGNumberFormat();
+        final StringBuilder json = new StringBuilder(128 + 96 * index.getTileCount());
+        json.append("{\n  \"width\": ");
+        nf.append(json, index.getWidth());
+        json.append(",\n  \"height\": ");
+        nf.append(json, index.getHeight());
+        json.append(",\n  \"columns\": ").append(index.getColumns());
+        json.append(",\n  \"rows\": ").append(index.getRows());
+        json.append(",\n  \"tiles\": [");
+        for (int i = 0; i < index.getTileCount(); i++) {
+            final Rectangle b = index.getTileBounds(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"file\": \"").append(getTileFileName(i)).append('"');
+            json.append(", \"row\": ").append(i / index.getColumns());
+            json.append(", \"column\": ").append(i % index.getColumns());
+            json.append(", \"x\": ");
+            nf.append(json, b.x);
+            json.append(", \"y\": ");
+            nf.append(json, b.y);
+            json.append(", \"width\": ");
+            nf.append(json, b.width);
+            json.append(", \"height\": ");
+            nf.append(json, b.height);
+            json.append('}');
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+}
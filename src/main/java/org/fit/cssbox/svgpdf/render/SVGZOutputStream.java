@@ -0,0 +1,196 @@
+package org.fit.cssbox.svgpdf.render;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An output stream that produces the gzip-compressed (SVGZ) data.
+ * <p>
+ * With a single thread, the data is streamed through one gzip deflater. With more threads,
+ * the input is split to fixed-size blocks that are compressed concurrently as independent gzip
+ * members and written in the original order (the same approach as pigz uses). A concatenation
+ * of gzip members is a valid gzip file that decompresses to the concatenated data.
+ * <p>
+ * {@link #finish()} completes the compressed data without closing the underlying stream.
+ */
+public class SVGZOutputStream extends OutputStream {
+    /**
+     * Default size of a block compressed by a single thread in the parallel mode
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final OutputStream out;
+    private final int level;
+
+    // sequential mode
+    private LevelGZIPOutputStream gzip;
+
+    // parallel mode
+    private ExecutorService executor;
+    private Queue<Future<byte[]>> pending;
+    private int maxPending;
+    private byte[] block;
+    private int blockLength;
+
+    private boolean finished;
+
+    /**
+     * Creates a sequential compressed stream.
+     *
+     * @param out   - the underlying output stream
+     * @param level - the compression level (0..9 or {@link Deflater#DEFAULT_COMPRESSION})
+     * @throws IOException
+     */
+    public SVGZOutputStream(OutputStream out, int level) throws IOException {
+        this(out, level, 1, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a compressed stream.
+     *
+     * @param out       - the underlying output stream
+     * @param level     - the compression level (0..9 or {@link Deflater#DEFAULT_COMPRESSION})
+     * @param threads   - the number of compression threads; 1 for a single gzip member
+     * @param blockSize - the size of the independently compressed blocks in the parallel mode
+     * @throws IOException
+     */
+    public SVGZOutputStream(OutputStream out, int level, int threads, int blockSize) throws IOException {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9))
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        this.out = out;
+        this.level = level;
+        if (threads <= 1) {
+            gzip = new LevelGZIPOutputStream(out, level);
+        } else {
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "svgz-deflater");
+                t.setDaemon(true);
+                return t;
+            });
+            pending = new ArrayDeque<>();
+            maxPending = 2 * threads;
+            block = new byte[blockSize];
+            blockLength = 0;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (gzip != null) {
+            gzip.write(b);
+        } else {
+            if (blockLength == block.length)
+                submitBlock();
+            block[blockLength++] = (byte) b;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (gzip != null) {
+            gzip.write(b, off, len);
+        } else {
+            while (len > 0) {
+                if (blockLength == block.length)
+                    submitBlock();
+                final int n = Math.min(len, block.length - blockLength);
+                System.arraycopy(b, off, block, blockLength, n);
+                blockLength += n;
+                off += n;
+                len -= n;
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining compressed data to the underlying stream without closing it.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+        finished = true;
+        if (gzip != null) {
+            gzip.finish();
+        } else {
+            try {
+                if (blockLength > 0)
+                    submitBlock();
+                while (!pending.isEmpty())
+                    writeCompleted();
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // blocks are written as they complete; flushing a partial block would break the member size
+        if (gzip != null)
+            gzip.flush();
+        else
+            out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    //================================================================================
+
+    private void submitBlock() throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        pending.add(executor.submit(() -> compress(data, length)));
+        block = new byte[data.length];
+        blockLength = 0;
+        while (pending.size() >= maxPending)
+            writeCompleted();
+    }
+
+    private void writeCompleted() throws IOException {
+        try {
+            out.write(pending.remove().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+    }
+
+    private byte[] compress(byte[] data, int length) throws IOException {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream(Math.max(64, length / 4));
+        try (LevelGZIPOutputStream member = new LevelGZIPOutputStream(buf, level)) {
+            member.write(data, 0, length);
+        }
+        return buf.toByteArray();
+    }
+
+    /**
+     * A gzip stream with a configurable compression level.
+     */
+    private static class LevelGZIPOutputStream extends GZIPOutputStream {
+        public LevelGZIPOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.fit.cssbox.svgpdf.render;
+
+import cz.vutbr.web.css.CSSProperty;
+import cz.vutbr.web.css.NodeData;
+import cz.vutbr.web.css.TermColor;
+import cz.vutbr.web.css.TermList;
+import org.fit.cssbox.layout.ElementBox;
+
+/**
+ * A compact representation of the style properties that decide which rendering steps are
+ * needed for an element. The flags are computed once for each element so that the renderers
+ * may test single bits instead of repeatedly querying the element style.
+ */
+public final class StyleFlags {
+    // a border style is specified for the side
+    public static final int BORDER_TOP = 1;
+    public static final int BORDER_RIGHT = 1 << 1;
+    public static final int BORDER_BOTTOM = 1 << 2;
+    public static final int BORDER_LEFT = 1 << 3;
+    public static final int BORDER = BORDER_TOP | BORDER_RIGHT | BORDER_BOTTOM | BORDER_LEFT;
+
+    // the side of the border is visible (it has a visible style and it is not transparent)
+    public static final int VISIBLE_TOP = 1 << 4;
+    public static final int VISIBLE_RIGHT = 1 << 5;
+    public static final int VISIBLE_BOTTOM = 1 << 6;
+    public static final int VISIBLE_LEFT = 1 << 7;
+    public static final int VISIBLE = VISIBLE_TOP | VISIBLE_RIGHT | VISIBLE_BOTTOM | VISIBLE_LEFT;
+
+    public static final int RADIUS = 1 << 8;
+    public static final int TRANSFORM = 1 << 9;
+    public static final int FILTER = 1 << 10;
+    public static final int OPACITY = 1 << 11;
+    // all the four sides of the border have the same style
+    public static final int SAME_STYLE = 1 << 12;
+
+    private static final String[] SIDES = {"top", "right", "bottom", "left"};
+
+    private StyleFlags() {
+    }
+
+    /**
+     * Computes all the flags of an element.
+     *
+     * @param elem - the element
+     * @return the flags
+     */
+    public static int compute(ElementBox elem) {
+        final NodeData style = elem.getStyle();
+        if (style == null)
+            return 0;
+        int flags = computeBorder(elem);
+        if (style.getProperty("transform") == CSSProperty.Transform.list_values)
+            flags |= TRANSFORM;
+        if (style.getProperty("filter") == CSSProperty.Filter.list_values)
+            flags |= FILTER;
+        if (!elem.getStylePropertyValue("opacity").isEmpty())
+            flags |= OPACITY;
+        return flags;
+    }
+
+    /**
+     * Computes the flags related to the border of an element ({@link #BORDER}, the visible
+     * sides, {@link #SAME_STYLE} and {@link #RADIUS}).
+     *
+     * @param elem - the element
+     * @return the flags
+     */
+    public static int computeBorder(ElementBox elem) {
+        final NodeData style = elem.getStyle();
+        if (style == null)
+            return 0;
+        int flags = 0;
+        CSSProperty.BorderStyle first = null;
+        boolean sameStyle = true;
+        for (int i = 0; i < SIDES.length; i++) {
+            final CSSProperty.BorderStyle bst = style.getProperty("border-" + SIDES[i] + "-style");
+            if (i == 0)
+                first = bst;
+            else if (bst != first)
+                sameStyle = false;
+            if (bst != null) {
+                flags |= BORDER_TOP << i;
+                final TermColor tclr = style.getValue(TermColor.class, "border-" + SIDES[i] + "-color");
+                if (bst != CSSProperty.BorderStyle.NONE && bst != CSSProperty.BorderStyle.HIDDEN
+                        && (tclr == null || !tclr.isTransparent()))
+                    flags |= VISIBLE_TOP << i;
+            }
+        }
+        if (sameStyle && first != null)
+            flags |= SAME_STYLE;
+        if (style.getValue(TermList.class, "border-top-right-radius") != null
+                || style.getValue(TermList.class, "border-top-left-radius") != null
+                || style.getValue(TermList.class, "border-bottom-right-radius") != null
+                || style.getValue(TermList.class, "border-bottom-left-radius") != null)
+            flags |= RADIUS;
+        return flags;
+    }
+
+    /**
+     * Returns the index of a border side.
+     *
+     * @param side - the side name (top, right, bottom or left)
+     * @return the side index (0..3) in the order top, right, bottom, left or -1 for an unknown side
+     */
+    public static int side(String side) {
+        switch (side) {
+            case "top":
+                return 0;
+            case "right":
+                return 1;
+            case "bottom":
+                return 2;
+            case "left":
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the visibility flag of a border side.
+     *
+     * @param side - the side name (top, right, bottom or left)
+     * @return the corresponding VISIBLE_* flag or 0 for an unknown side
+     */
+    public static int visible(String side) {
+        final int i = side(side);
+        return i < 0 ? 0 : VISIBLE_TOP << i;
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.fit.cssbox.svgpdf.render;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.fit.cssbox.layout.TextBox;
+import org.fit.cssbox.layout.VisualContext;
+import org.fit.cssbox.svgpdf.layout.TextStyle;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A cache of the text styles. Equal styles of different text boxes are represented by a single
+ * shared {@link TextStyle} instance.
+ */
+public class TextStyleCache {
+    private Map<TextStyle, TextStyle> cache;
+
+    public TextStyleCache() {
+        cache = new HashMap<>();
+    }
+
+    /**
+     * Returns the style of a text box.
+     *
+     * @param text - the text box
+     * @param font - the PDF font used for the text or {@code null} when not used
+     * @return the shared text style
+     */
+    public TextStyle get(TextBox text, PDFont font) {
+        return intern(TextStyle.create(text, font));
+    }
+
+    /**
+     * Returns the style of a text drawn using the given visual context (e.g. a list item marker).
+     *
+     * @param ctx        - the visual context
+     * @param decoration - the text decorations, see {@link TextStyle#decorationMask(Iterable)}
+     * @param font       - the PDF font used for the text or {@code null} when not used
+     * @return the shared text style
+     */
+    public TextStyle get(VisualContext ctx, int decoration, PDFont font) {
+        return intern(TextStyle.create(ctx, decoration, font));
+    }
+
+    private TextStyle intern(TextStyle style) {
+        final TextStyle cached = cache.get(style);
+        if (cached != null)
+            return cached;
+        cache.put(style, style);
+        return style;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+}